@@ -1,15 +1,185 @@
 package com.vaadin.demo.dashboard;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vaadin.demo.dashboard.data.DataProvider;
+import com.vaadin.demo.dashboard.data.dummy.DummyDataProvider;
+import com.vaadin.demo.dashboard.data.sql.SqlDataProvider;
+import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
 
 @SuppressWarnings("serial")
 public class DashboardServlet extends VaadinServlet {
 
+    /* Set to "sql" to use the embedded database instead of the dummy backend */
+    public static final String BACKEND_PROPERTY = "dashboard.backend";
+
+    /*
+     * Seconds to exercise the hot code paths with synthetic calls before
+     * reporting ready, 0 (the default) to skip
+     */
+    public static final String WARM_UP_PROPERTY = "dashboard.warmUpSeconds";
+
+    /* How often the warming up page reloads itself */
+    private static final int RETRY_AFTER_SECONDS = 2;
+
+    private static final String WARMING_UP_PAGE = "<!DOCTYPE html>"
+            + "<html><head><meta charset=\"UTF-8\">"
+            + "<meta http-equiv=\"refresh\" content=\"" + RETRY_AFTER_SECONDS
+            + "\"><title>QuickTickets Dashboard</title></head>"
+            + "<body style=\"font-family: sans-serif; text-align: center;"
+            + " margin-top: 20%; color: #474747;\">"
+            + "<h2>QuickTickets Dashboard is warming up</h2>"
+            + "<p>This page reloads as soon as it's ready.</p>"
+            + "</body></html>";
+
+    private static final Logger LOGGER = Logger
+            .getLogger(DashboardServlet.class.getName());
+
+    /**
+     * The readiness of the application to serve users.
+     */
+    public enum State {
+        /** The backend is still loading its data or warming up */
+        WARMING_UP,
+        /** The backend is loaded */
+        READY,
+        /** Loading the backend failed, see the log */
+        FAILED
+    }
+
+    /*
+     * The backend shared by all the sessions of the application. It's loaded
+     * and optionally warmed up in the background when the servlet starts, and
+     * requests get a warming up page until it's ready.
+     */
+    private transient volatile DataProvider dataProvider;
+    private transient volatile State state = State.WARMING_UP;
+    private transient volatile boolean destroyed;
+
     @Override
     protected final void servletInitialized() throws ServletException {
         super.servletInitialized();
         getService().addSessionInitListener(new DashboardSessionInitListener());
+        loadBackend(getService().getBaseDirectory());
+    }
+
+    private void loadBackend(final File baseDirectory) {
+        Thread thread = new ThreadFactoryBuilder()
+                .setNameFormat("dashboard-warm-up").setDaemon(true).build()
+                .newThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        long start = System.nanoTime();
+                        try {
+                            DataProvider provider = createDataProvider(baseDirectory);
+                            dataProvider = provider;
+                            if (destroyed) {
+                                // Undeployed while loading
+                                closeBackend();
+                                return;
+                            }
+                            int warmUpSeconds = Integer.getInteger(
+                                    WARM_UP_PROPERTY, 0);
+                            if (warmUpSeconds > 0) {
+                                new WarmUp(getService(), provider).run(
+                                        warmUpSeconds, TimeUnit.SECONDS);
+                            }
+                            state = State.READY;
+                            LOGGER.info("Backend ready in "
+                                    + TimeUnit.NANOSECONDS.toMillis(System
+                                            .nanoTime() - start) + " ms");
+                        } catch (Throwable e) {
+                            // Including errors such as running out of
+                            // memory, which would leave the state warming up
+                            state = State.FAILED;
+                            LOGGER.log(Level.SEVERE, "Loading backend failed",
+                                    e);
+                        }
+                    }
+                });
+        thread.start();
+    }
+
+    /**
+     * Stops the background work of the backend when the application is
+     * undeployed.
+     */
+    @Override
+    public void destroy() {
+        destroyed = true;
+        closeBackend();
+        super.destroy();
+    }
+
+    private synchronized void closeBackend() {
+        DataProvider provider = dataProvider;
+        if (provider != null) {
+            dataProvider = null;
+            provider.close();
+        }
+    }
+
+    private static DataProvider createDataProvider(final File baseDirectory) {
+        if ("sql".equals(System.getProperty(BACKEND_PROPERTY))) {
+            return new SqlDataProvider(baseDirectory);
+        }
+        return new DummyDataProvider(baseDirectory);
+    }
+
+    /**
+     * Answers with a small self-reloading page and 503 Service Unavailable
+     * until the backend is ready. Static resources like the theme are served
+     * right away.
+     */
+    @Override
+    protected void service(final HttpServletRequest request,
+            final HttpServletResponse response) throws ServletException,
+            IOException {
+        State current = state;
+        if (current == State.READY || isResourceRequest(request)) {
+            super.service(request, response);
+            return;
+        }
+        if (current == State.WARMING_UP) {
+            response.setHeader("Retry-After",
+                    String.valueOf(RETRY_AFTER_SECONDS));
+            response.setContentType("text/html; charset=UTF-8");
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.getWriter().write(WARMING_UP_PAGE);
+        } else {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+    }
+
+    private static boolean isResourceRequest(final HttpServletRequest request) {
+        String path = request.getPathInfo();
+        return path != null && path.startsWith("/VAADIN/");
+    }
+
+    /**
+     * @return The readiness of this application.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return The backend of the servlet serving the current request.
+     */
+    public static DataProvider getDataProvider() {
+        VaadinServletService service = (VaadinServletService) VaadinService
+                .getCurrent();
+        return ((DashboardServlet) service.getServlet()).dataProvider;
     }
-}
\ No newline at end of file
+}
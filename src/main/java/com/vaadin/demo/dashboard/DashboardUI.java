@@ -7,7 +7,7 @@ import com.vaadin.annotations.Theme;
 import com.vaadin.annotations.Title;
 import com.vaadin.annotations.Widgetset;
 import com.vaadin.demo.dashboard.data.DataProvider;
-import com.vaadin.demo.dashboard.data.dummy.DummyDataProvider;
+import com.vaadin.demo.dashboard.data.UserNotifications;
 import com.vaadin.demo.dashboard.domain.User;
 import com.vaadin.demo.dashboard.event.DashboardEvent.BrowserResizeEvent;
 import com.vaadin.demo.dashboard.event.DashboardEvent.CloseOpenWindowsEvent;
@@ -32,13 +32,6 @@ import com.vaadin.ui.themes.ValoTheme;
 @SuppressWarnings("serial")
 public final class DashboardUI extends UI {
 
-    /*
-     * This field stores an access to the dummy backend layer. In real
-     * applications you most likely gain access to your beans trough lookup or
-     * injection; and not in the UI but somewhere closer to where they're
-     * actually accessed.
-     */
-    private final DataProvider dataProvider = new DummyDataProvider();
     private final DashboardEventBus dashboardEventbus = new DashboardEventBus();
 
     @Override
@@ -86,6 +79,8 @@ public final class DashboardUI extends UI {
     public void userLoginRequested(final UserLoginRequestedEvent event) {
         User user = getDataProvider().authenticate(event.getUserName(),
                 event.getPassword());
+        VaadinSession.getCurrent().setAttribute(UserNotifications.class,
+                new UserNotifications(getDataProvider().getNotifications(user)));
         VaadinSession.getCurrent().setAttribute(User.class.getName(), user);
         updateContent();
     }
@@ -107,10 +102,18 @@ public final class DashboardUI extends UI {
     }
 
     /**
-     * @return An instance for accessing the (dummy) services layer.
+     * @return An instance for accessing the (dummy) services layer, shared by
+     *         all the sessions.
      */
     public static DataProvider getDataProvider() {
-        return ((DashboardUI) getCurrent()).dataProvider;
+        return DashboardServlet.getDataProvider();
+    }
+
+    /**
+     * @return The notifications of the logged in user.
+     */
+    public static UserNotifications getNotifications() {
+        return VaadinSession.getCurrent().getAttribute(UserNotifications.class);
     }
 
     public static DashboardEventBus getDashboardEventbus() {
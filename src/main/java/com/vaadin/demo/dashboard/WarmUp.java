@@ -0,0 +1,145 @@
+package com.vaadin.demo.dashboard;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.data.util.filter.Or;
+import com.vaadin.data.util.filter.SimpleStringFilter;
+import com.vaadin.demo.dashboard.component.SparklineChart;
+import com.vaadin.demo.dashboard.component.TopGrossingMoviesChart;
+import com.vaadin.demo.dashboard.component.TopSixTheatersChart;
+import com.vaadin.demo.dashboard.component.TopTenMoviesTable;
+import com.vaadin.demo.dashboard.data.DataProvider;
+import com.vaadin.demo.dashboard.data.RevenueDimension;
+import com.vaadin.demo.dashboard.data.SalesMetric;
+import com.vaadin.demo.dashboard.data.dummy.DummyDataGenerator;
+import com.vaadin.demo.dashboard.domain.Movie;
+import com.vaadin.demo.dashboard.domain.Transaction;
+import com.vaadin.demo.dashboard.view.transactions.TransactionsContainer;
+import com.vaadin.server.VaadinService;
+import com.vaadin.util.CurrentInstance;
+
+/**
+ * Runs the hot code paths of the application with synthetic calls before it
+ * starts serving users, so the JIT has compiled them by the time the first
+ * real requests arrive: the backend queries, sorting and filtering of the
+ * transactions container and building the dashboard charts. Nothing is
+ * written to the backend.
+ */
+final class WarmUp {
+
+    private static final Logger LOGGER = Logger.getLogger(WarmUp.class
+            .getName());
+
+    private static final String[] SORT_PROPERTIES = { "time", "country",
+            "city", "title", "seats", "price" };
+
+    private final VaadinService service;
+    private final DataProvider provider;
+    private final List<Movie> movies = new ArrayList<Movie>();
+    private final List<String> filterTexts = new ArrayList<String>();
+
+    WarmUp(final VaadinService service, final DataProvider provider) {
+        this.service = service;
+        this.provider = provider;
+    }
+
+    /**
+     * Repeats the workload for the given time. Failures are logged and end
+     * the warm-up early, they never keep the application from starting.
+     */
+    void run(final long duration, final TimeUnit unit) {
+        long start = System.nanoTime();
+        long end = start + unit.toNanos(duration);
+        int rounds = 0;
+        // Components reach the backend through the current service
+        VaadinService.setCurrent(service);
+        try {
+            movies.addAll(provider.getMovies());
+            // Filter by fragments of real values, like users typing
+            for (Transaction transaction : provider.getRecentTransactions(20)) {
+                filterTexts.add(prefix(transaction.getCity(), 3));
+                filterTexts.add(prefix(transaction.getTitle(), 2));
+            }
+            filterTexts.add("zzz");
+            while (System.nanoTime() < end) {
+                round(rounds++);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Warm-up failed", e);
+        } finally {
+            CurrentInstance.clearAll();
+        }
+        LOGGER.info("Warmed up with " + rounds + " rounds in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                + " ms");
+    }
+
+    private static String prefix(final String text, final int length) {
+        return text.substring(0, Math.min(length, text.length()));
+    }
+
+    private void round(final int round) {
+        queryBackend(round);
+        browseTransactions(round);
+        buildCharts();
+    }
+
+    private void queryBackend(final int round) {
+        Movie movie = movies.get(round % movies.size());
+        provider.getRecentTransactions(5 + round % 20);
+        provider.getTotalMovieRevenues();
+        provider.getDailyRevenuesByMovie(movie.getId());
+        provider.getTotalSum();
+        provider.getDistinctCountries(movie.getId());
+        provider.getDistinctCities(movie.getId());
+        provider.getPricePercentile(0.95);
+        provider.getSeatsPercentile(0.5);
+        for (SalesMetric metric : SalesMetric.values()) {
+            provider.getMetricHistory(metric, 24);
+        }
+
+        Calendar calendar = Calendar.getInstance();
+        Date endDate = calendar.getTime();
+        calendar.add(Calendar.DAY_OF_MONTH, -7 - round % 60);
+        Date startDate = calendar.getTime();
+        provider.getTransactionsBetween(startDate, endDate);
+        RevenueDimension[] all = RevenueDimension.values();
+        Set<RevenueDimension> dimensions = EnumSet.of(all[round % all.length]);
+        if (round % 2 == 1) {
+            dimensions.add(RevenueDimension.DAY);
+        }
+        provider.getRevenueBy(dimensions, startDate, endDate);
+    }
+
+    private void browseTransactions(final int round) {
+        TransactionsContainer container = new TransactionsContainer();
+        container.getItemIds(0, 100);
+        container.sort(new Object[] { SORT_PROPERTIES[round
+                % SORT_PROPERTIES.length] }, new boolean[] { round % 2 == 0 });
+        container.getItemIds(round % 1000, 100);
+
+        String text = filterTexts.get(round % filterTexts.size());
+        container.addContainerFilter(new Or(new SimpleStringFilter("country",
+                text, true, false), new SimpleStringFilter("city", text, true,
+                false), new SimpleStringFilter("title", text, true, false)));
+        container.getItemIds(0, 100);
+        container.removeAllContainerFilters();
+    }
+
+    private void buildCharts() {
+        new TopGrossingMoviesChart();
+        new TopSixTheatersChart();
+        new TopTenMoviesTable();
+        new SparklineChart("Sales / Hour", "", "",
+                DummyDataGenerator.chartColors[0], provider.getMetricHistory(
+                        SalesMetric.SALES_PER_HOUR, 24));
+    }
+}
@@ -1,5 +1,7 @@
 package com.vaadin.demo.dashboard.component;
 
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.List;
 
@@ -21,7 +23,6 @@ import com.vaadin.addon.charts.model.XAxis;
 import com.vaadin.addon.charts.model.YAxis;
 import com.vaadin.addon.charts.model.style.Color;
 import com.vaadin.addon.charts.model.style.SolidColor;
-import com.vaadin.demo.dashboard.data.dummy.DummyDataGenerator;
 import com.vaadin.shared.ui.label.ContentMode;
 import com.vaadin.ui.Alignment;
 import com.vaadin.ui.Component;
@@ -33,16 +34,15 @@ import com.vaadin.ui.themes.ValoTheme;
 public class SparklineChart extends VerticalLayout {
 
     public SparklineChart(final String name, final String unit,
-            final String prefix, final Color color, final int howManyPoints,
-            final int min, final int max) {
+            final String prefix, final Color color, final double[] values) {
         setSizeUndefined();
         addStyleName("spark");
         setDefaultComponentAlignment(Alignment.TOP_CENTER);
 
-        int[] values = DummyDataGenerator.randomSparklineValues(howManyPoints,
-                min, max);
-
-        Label current = new Label(prefix + values[values.length - 1] + unit);
+        // Up to one decimal so that small scaled values don't round to zero
+        NumberFormat format = new DecimalFormat("#,##0.#");
+        Label current = new Label(prefix
+                + format.format(values[values.length - 1]) + unit);
         current.setSizeUndefined();
         current.addStyleName(ValoTheme.LABEL_HUGE);
         addComponent(current);
@@ -55,10 +55,12 @@ public class SparklineChart extends VerticalLayout {
 
         addComponent(buildSparkline(values, color));
 
-        List<Integer> vals = Arrays.asList(ArrayUtils.toObject(values));
-        Label highLow = new Label("High <b>" + java.util.Collections.max(vals)
+        List<Double> vals = Arrays.asList(ArrayUtils.toObject(values));
+        Label highLow = new Label("High <b>"
+                + format.format(java.util.Collections.max(vals))
                 + "</b> &nbsp;&nbsp;&nbsp; Low <b>"
-                + java.util.Collections.min(vals) + "</b>", ContentMode.HTML);
+                + format.format(java.util.Collections.min(vals)) + "</b>",
+                ContentMode.HTML);
         highLow.addStyleName(ValoTheme.LABEL_TINY);
         highLow.addStyleName(ValoTheme.LABEL_LIGHT);
         highLow.setSizeUndefined();
@@ -66,7 +68,8 @@ public class SparklineChart extends VerticalLayout {
 
     }
 
-    private Component buildSparkline(final int[] values, final Color color) {
+    private Component buildSparkline(final double[] values,
+            final Color color) {
         Chart spark = new Chart();
         spark.getConfiguration().setTitle("");
         spark.getConfiguration().getChart().setType(ChartType.LINE);
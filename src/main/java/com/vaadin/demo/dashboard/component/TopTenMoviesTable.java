@@ -1,11 +1,10 @@
 package com.vaadin.demo.dashboard.component;
 
 import java.text.DecimalFormat;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.vaadin.data.Property;
 import com.vaadin.data.util.BeanItemContainer;
 import com.vaadin.demo.dashboard.DashboardUI;
@@ -45,25 +44,18 @@ public final class TopTenMoviesTable extends Table {
         setColumnHeaderMode(ColumnHeaderMode.HIDDEN);
         setSizeFull();
 
-        List<MovieRevenue> movieRevenues = new ArrayList<MovieRevenue>(
-                DashboardUI.getDataProvider().getTotalMovieRevenues());
-        Collections.sort(movieRevenues, new Comparator<MovieRevenue>() {
-            @Override
-            public int compare(final MovieRevenue o1, final MovieRevenue o2) {
-                return o2.getRevenue().compareTo(o1.getRevenue());
-            }
-        });
+        // The backend keeps the movies ranked by revenue
+        List<MovieRevenue> movieRevenues = ImmutableList.copyOf(Iterables
+                .limit(DashboardUI.getDataProvider().getTotalMovieRevenues(),
+                        10));
 
         setContainerDataSource(new BeanItemContainer<MovieRevenue>(
-                MovieRevenue.class, movieRevenues.subList(0, 10)));
+                MovieRevenue.class, movieRevenues));
 
         setVisibleColumns("title", "revenue");
         setColumnHeaders("Title", "Revenue");
         setColumnExpandRatio("title", 2);
         setColumnExpandRatio("revenue", 1);
-
-        setSortContainerPropertyId("revenue");
-        setSortAscending(false);
     }
 
 }
@@ -2,21 +2,26 @@ package com.vaadin.demo.dashboard.data;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.Set;
 
 import com.vaadin.demo.dashboard.domain.DashboardNotification;
 import com.vaadin.demo.dashboard.domain.Movie;
 import com.vaadin.demo.dashboard.domain.MovieRevenue;
+import com.vaadin.demo.dashboard.domain.RevenueGroup;
 import com.vaadin.demo.dashboard.domain.Transaction;
 import com.vaadin.demo.dashboard.domain.User;
 
 /**
- * QuickTickets Dashboard backend API.
+ * QuickTickets Dashboard backend API. A single instance serves all the
+ * sessions of the application, so implementations are thread-safe and keep
+ * no per-user state.
  */
 public interface DataProvider {
     /**
      * @param count
      *            Number of transactions to fetch.
-     * @return A Collection of most recent transactions.
+     * @return An immutable Collection of the most recent transactions, most
+     *         recent first.
      */
     Collection<Transaction> getRecentTransactions(int count);
 
@@ -28,7 +33,8 @@ public interface DataProvider {
     Collection<MovieRevenue> getDailyRevenuesByMovie(long id);
 
     /**
-     * @return Total revenues for each listed movie.
+     * @return Total revenues for each listed movie with sales, highest
+     *         first, as an immutable Collection.
      */
     Collection<MovieRevenue> getTotalMovieRevenues();
 
@@ -39,36 +45,13 @@ public interface DataProvider {
      */
     User authenticate(String userName, String password);
 
-    private static String readMoviesFromCache(Path path) throws IOException {
-        return new String(Files.readAllBytes(path));
-    }
-
-    private static JsonObject toJsonObject(String jsonText) throws IOException {
-        JsonElement jelement = new JsonParser().parse(jsonText.toString());
-        return jelement.getAsJsonObject();
-    }
-    
-    private static String readMoviesFromServiceProvider(String url) throws IOException {
-        StringBuilder sb = new StringBuilder(2000);
-        try ( // try-with-resources
-            InputStream is = new URL(url).openStream();
-            InputStreamReader isr = new InputStreamReader(is, StandardCharsets.UTF_8);
-            BufferedReader reader = new BufferedReader(isr)) {
-            reader.lines().forEach(line -> sb.append(line));
-        }
-        return sb.toString();
-    }
-
-    /**
-    /**
-     * @return The number of unread notifications for the current user.
-     */
-    int getUnreadNotificationsCount();
-
     /**
-     * @return Notifications for the current user.
+     * @param user
+     *            An authenticated user.
+     * @return The notifications of the user, to be kept in the user's
+     *         session.
      */
-    Collection<DashboardNotification> getNotifications();
+    Collection<DashboardNotification> getNotifications(User user);
 
     /**
      * @return The total summed up revenue of sold movie tickets
@@ -94,4 +77,100 @@ public interface DataProvider {
      *         dates.
      */
     Collection<Transaction> getTransactionsBetween(Date startDate, Date endDate);
+
+    /**
+     * @param query
+     *            Filter, sort order and the slice of the result to fetch.
+     * @return One page of transactions and the total number of transactions
+     *         matching the query.
+     */
+    TransactionPage getTransactions(TransactionQuery query);
+
+    /**
+     * @param dimensions
+     *            The dimensions to group by, an empty set gives the grand
+     *            total.
+     * @param startDate
+     * @param endDate
+     * @return Revenue between the days of the given start and end dates (both
+     *         inclusive) grouped by the given dimensions.
+     */
+    Collection<RevenueGroup> getRevenueBy(Set<RevenueDimension> dimensions,
+            Date startDate, Date endDate);
+
+    /**
+     * Records a new ticket sale. The daily and cumulative revenue of the
+     * movie are updated as part of the call.
+     *
+     * @param transaction
+     *            The sale, not older than the most recent one already
+     *            recorded.
+     */
+    void addTransaction(Transaction transaction);
+
+    /**
+     * Queues a ticket sale to be recorded in the background. Meant for box
+     * offices recording sales concurrently: the call never blocks, and sales
+     * are recorded shortly after in batches, in time order. A sale may be
+     * dropped if it arrives long after newer ones or is dated ahead of the
+     * clock.
+     *
+     * @param transaction
+     *            The sale, not to be modified after the call.
+     * @return false if the backend is falling behind and the sale was not
+     *         queued. The caller should retry later or give up on the sale.
+     * @throws IllegalArgumentException
+     *             if the movie is unknown, an attribute is missing or the
+     *             seats or price are out of range
+     */
+    boolean offerTransaction(Transaction transaction);
+
+    /**
+     * @param movieId
+     *            Movie's identifier
+     * @return The approximate number of distinct countries the movie has
+     *         sold tickets in.
+     */
+    long getDistinctCountries(long movieId);
+
+    /**
+     * @param movieId
+     *            Movie's identifier
+     * @return The approximate number of distinct cities the movie has sold
+     *         tickets in.
+     */
+    long getDistinctCities(long movieId);
+
+    /**
+     * @param quantile
+     *            Between 0 and 1, for example 0.95 for the 95th percentile.
+     * @return The approximate ticket price at the given quantile over all
+     *         sales, or NaN if there are no sales.
+     */
+    double getPricePercentile(double quantile);
+
+    /**
+     * @param quantile
+     *            Between 0 and 1, for example 0.5 for the median.
+     * @return The approximate number of seats per sale at the given quantile
+     *         over all sales, or NaN if there are no sales.
+     */
+    double getSeatsPercentile(double quantile);
+
+    /**
+     * @param metric
+     *            The metric to fetch.
+     * @param points
+     *            Number of intervals to fetch, at most 64.
+     * @return The values of the metric over the given number of intervals up
+     *         to the latest one with sales, oldest first. Intervals without
+     *         sales are zero.
+     */
+    double[] getMetricHistory(SalesMetric metric, int points);
+
+    /**
+     * Stops the background work of the backend, such as recording offered
+     * sales, and releases its resources. The backend can't be used after.
+     */
+    void close();
 }
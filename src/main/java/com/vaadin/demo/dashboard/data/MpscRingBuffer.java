@@ -0,0 +1,124 @@
+package com.vaadin.demo.dashboard.data;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock-free queue for many producers and a single consumer.
+ * <p>
+ * Every slot has a sequence number telling whose turn it is: a producer
+ * claims the next position with a compare-and-set and may only fill its slot
+ * once the consumer has released the slot's previous element, and the
+ * consumer may only take an element once its producer has published it by
+ * advancing the sequence. Producers never wait for each other or for the
+ * consumer; a full queue is reported to the producer instead.
+ */
+final class MpscRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    /* The next position claimed by producers */
+    private final AtomicLong tail = new AtomicLong();
+    /* The next position taken by the consumer, only written by it */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity
+     *            Rounded up to a power of two.
+     */
+    MpscRingBuffer(final int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        elements = new AtomicReferenceArray<E>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Adds an element. Safe to call from any number of threads.
+     *
+     * @return false if the queue is full.
+     */
+    boolean offer(final E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    // Publishes the element to the consumer
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // The consumer hasn't taken the element a lap ago yet
+                return false;
+            } else {
+                // Another producer claimed the position
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Moves the published elements to the given collection, in the order
+     * their positions were claimed. Only called by the consumer.
+     *
+     * @return The number of elements moved.
+     */
+    int drainTo(final Collection<? super E> target, final int maxElements) {
+        long position = head.get();
+        int count = 0;
+        while (count < maxElements) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            target.add(elements.get(index));
+            elements.lazySet(index, null);
+            // Releases the slot for the producers of the next lap
+            sequences.set(index, position + mask + 1);
+            position++;
+            count++;
+        }
+        head.lazySet(position);
+        return count;
+    }
+
+    /**
+     * @return Whether there's no published element. Only called by the
+     *         consumer.
+     */
+    boolean isEmpty() {
+        long position = head.get();
+        return sequences.get((int) position & mask) != position + 1;
+    }
+
+    /**
+     * @return The approximate number of queued elements.
+     */
+    int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(capacity(), size));
+    }
+}
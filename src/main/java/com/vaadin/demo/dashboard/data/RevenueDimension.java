@@ -0,0 +1,11 @@
+package com.vaadin.demo.dashboard.data;
+
+/**
+ * The dimensions revenue can be grouped by.
+ *
+ * @see DataProvider#getRevenueBy(java.util.Set, java.util.Date,
+ *      java.util.Date)
+ */
+public enum RevenueDimension {
+    MOVIE, DAY, COUNTRY, THEATER, ROOM
+}
@@ -0,0 +1,33 @@
+package com.vaadin.demo.dashboard.data;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The metrics of the ticket sales kept as a time series, one value per hour
+ * or per local calendar day.
+ *
+ * @see DataProvider#getMetricHistory(SalesMetric, int)
+ */
+public enum SalesMetric {
+    /** Number of sales per hour */
+    SALES_PER_HOUR(TimeUnit.HOURS),
+    /** Number of seats sold per hour */
+    SEATS_PER_HOUR(TimeUnit.HOURS),
+    /** Revenue per day, in dollars */
+    REVENUE_PER_DAY(TimeUnit.DAYS),
+    /** Average price of a sale per day, in dollars */
+    AVERAGE_PRICE_PER_DAY(TimeUnit.DAYS);
+
+    private final TimeUnit interval;
+
+    private SalesMetric(final TimeUnit interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * @return The length of the interval each value covers.
+     */
+    public TimeUnit getInterval() {
+        return interval;
+    }
+}
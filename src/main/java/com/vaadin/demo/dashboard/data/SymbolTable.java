@@ -0,0 +1,31 @@
+package com.vaadin.demo.dashboard.data;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Canonical instances of the strings repeated over many domain objects:
+ * movie titles, countries, cities, theaters and rooms. Backends intern these
+ * values when they load, generate or receive them, so every transaction and
+ * revenue row refers to the same instance of a value instead of a copy of it,
+ * also across data refreshes.
+ * <p>
+ * The table only holds weak references, so values no longer used by any data
+ * are garbage collected.
+ */
+public final class SymbolTable {
+
+    private static final Interner<String> SYMBOLS = Interners
+            .newWeakInterner();
+
+    private SymbolTable() {
+    }
+
+    /**
+     * @return The canonical instance equal to the given value, or null if the
+     *         value is null.
+     */
+    public static String intern(final String value) {
+        return value == null ? null : SYMBOLS.intern(value);
+    }
+}
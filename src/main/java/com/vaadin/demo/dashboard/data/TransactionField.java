@@ -0,0 +1,40 @@
+package com.vaadin.demo.dashboard.data;
+
+/**
+ * The fields of a transaction that queries can sort and filter by.
+ */
+public enum TransactionField {
+    TIME("time"), COUNTRY("country"), CITY("city"), THEATER("theater"), ROOM(
+            "room"), TITLE("title"), SEATS("seats"), PRICE("price");
+
+    private final String propertyId;
+
+    private TransactionField(final String propertyId) {
+        this.propertyId = propertyId;
+    }
+
+    /**
+     * @return The name of the corresponding Transaction bean property.
+     */
+    public String getPropertyId() {
+        return propertyId;
+    }
+
+    /**
+     * @return true if the field holds text which can be filtered by.
+     */
+    public boolean isText() {
+        return this != TIME && this != SEATS && this != PRICE;
+    }
+
+    public static TransactionField getByPropertyId(final Object propertyId) {
+        TransactionField result = null;
+        for (TransactionField field : values()) {
+            if (field.getPropertyId().equals(propertyId)) {
+                result = field;
+                break;
+            }
+        }
+        return result;
+    }
+}
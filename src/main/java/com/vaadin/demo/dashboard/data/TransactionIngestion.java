@@ -0,0 +1,199 @@
+package com.vaadin.demo.dashboard.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vaadin.demo.dashboard.domain.Transaction;
+
+/**
+ * Records ticket sales offered concurrently by any number of threads. Sales
+ * go through a bounded lock-free ring buffer to a single writer thread, which
+ * hands them to the backend in batches of up to the given size, so the
+ * backend sees one writer and pays its per-write costs once per batch.
+ * <p>
+ * When the writer falls behind and the buffer fills up, offers fail instead
+ * of blocking or growing the buffer: {@link #offer(Transaction)} returns
+ * false right away and {@link #offer(Transaction, long, TimeUnit)} waits at
+ * most the given time for room.
+ */
+public final class TransactionIngestion {
+
+    /**
+     * Writes a batch of sales to a backend. Always called from the writer
+     * thread of the ingestion.
+     */
+    public interface BatchWriter {
+        /**
+         * @param batch
+         *            The sales in the order they were offered.
+         */
+        void write(List<Transaction> batch);
+    }
+
+    private static final Logger LOGGER = Logger
+            .getLogger(TransactionIngestion.class.getName());
+
+    /* How long the writer sleeps when there's nothing to write */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    /* How often a waiting producer checks for room */
+    private static final long FULL_BACKOFF_NANOS = TimeUnit.MICROSECONDS
+            .toNanos(100);
+
+    private final MpscRingBuffer<Transaction> buffer;
+    private final int batchSize;
+    private final BatchWriter writer;
+    private final Thread thread;
+    /* Set while the writer might be parked and needs to be woken up */
+    private volatile boolean idle;
+
+    /**
+     * @param name
+     *            The name of the writer thread.
+     * @param capacity
+     *            The number of sales that can wait for the writer.
+     * @param batchSize
+     *            The maximum number of sales written at once.
+     */
+    public TransactionIngestion(final String name, final int capacity,
+            final int batchSize, final BatchWriter writer) {
+        buffer = new MpscRingBuffer<Transaction>(capacity);
+        this.batchSize = batchSize;
+        this.writer = writer;
+        thread = new ThreadFactoryBuilder().setNameFormat(name)
+                .setDaemon(true).build().newThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        writeLoop();
+                    }
+                });
+    }
+
+    /**
+     * Starts the writer thread.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops the writer thread and waits for it to finish the batch it's
+     * writing. Sales still in the buffer are not written.
+     */
+    public void stop() {
+        thread.interrupt();
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a sale without waiting.
+     *
+     * @return false if the buffer is full and the sale was not queued.
+     * @throws IllegalArgumentException
+     *             if the sale is malformed, as it would fail on the writer
+     *             thread
+     */
+    public boolean offer(final Transaction transaction) {
+        checkTransaction(transaction);
+        if (!buffer.offer(transaction)) {
+            return false;
+        }
+        if (idle) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    /**
+     * Queues a sale, waiting up to the given time for room in the buffer.
+     *
+     * @return false if there was no room in time and the sale was not
+     *         queued.
+     * @throws IllegalArgumentException
+     *             if the sale is malformed
+     */
+    public boolean offer(final Transaction transaction, final long timeout,
+            final TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(transaction)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(Math.min(remaining, FULL_BACKOFF_NANOS));
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    private static void checkTransaction(final Transaction transaction) {
+        if (transaction.getTime() == null || transaction.getTitle() == null
+                || transaction.getCountry() == null
+                || transaction.getCity() == null
+                || transaction.getTheater() == null
+                || transaction.getRoom() == null) {
+            throw new IllegalArgumentException("Incomplete transaction");
+        }
+        if (transaction.getSeats() < 1) {
+            throw new IllegalArgumentException("Invalid seat count "
+                    + transaction.getSeats());
+        }
+        // Prices are recorded in int cents
+        double price = transaction.getPrice();
+        if (!(price >= 0 && price <= Integer.MAX_VALUE / 100)) {
+            throw new IllegalArgumentException("Invalid price " + price);
+        }
+    }
+
+    /**
+     * @return The approximate number of sales waiting for the writer.
+     */
+    public int getQueuedCount() {
+        return buffer.size();
+    }
+
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+
+    private void writeLoop() {
+        List<Transaction> batch = new ArrayList<Transaction>(batchSize);
+        List<Transaction> readOnlyBatch = Collections.unmodifiableList(batch);
+        while (!Thread.currentThread().isInterrupted()) {
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                idle = true;
+                // Offers after this check see the flag and unpark
+                if (buffer.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                }
+                idle = false;
+                continue;
+            }
+            try {
+                writer.write(readOnlyBatch);
+            } catch (RuntimeException e) {
+                // The sales of a failed batch are lost, keep writing others
+                LOGGER.log(Level.SEVERE, "Recording " + batch.size()
+                        + " sales failed", e);
+            }
+            batch.clear();
+        }
+    }
+}
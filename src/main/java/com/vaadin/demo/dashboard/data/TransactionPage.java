@@ -0,0 +1,47 @@
+package com.vaadin.demo.dashboard.data;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.vaadin.demo.dashboard.domain.Transaction;
+
+/**
+ * One page of a {@link TransactionQuery} result.
+ */
+public final class TransactionPage {
+    private final List<Transaction> transactions;
+    private final int totalCount;
+    private final long snapshot;
+
+    public TransactionPage(final List<Transaction> transactions,
+            final int totalCount, final long snapshot) {
+        this.transactions = Collections.unmodifiableList(transactions);
+        this.totalCount = totalCount;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return The transactions of this page.
+     */
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * @return The number of transactions matching the query, regardless of
+     *         the offset and limit.
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return The transactions the page was read from, to pass on with
+     *         {@link TransactionQuery#setSnapshot(Long)} when reading the
+     *         following pages.
+     */
+    public long getSnapshot() {
+        return snapshot;
+    }
+
+}
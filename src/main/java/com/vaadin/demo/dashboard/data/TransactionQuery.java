@@ -0,0 +1,135 @@
+package com.vaadin.demo.dashboard.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Describes one page of transactions: which transactions to include, in which
+ * order, and which slice of the result to return.
+ *
+ * @see DataProvider#getTransactions(TransactionQuery)
+ */
+public final class TransactionQuery {
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+    private final List<TransactionSort> sortOrder = new ArrayList<TransactionSort>();
+    private String filterText;
+    private Set<TransactionField> filterFields = EnumSet.of(
+            TransactionField.COUNTRY, TransactionField.CITY,
+            TransactionField.TITLE);
+    private Date startDate;
+    private Date endDate;
+    private Long snapshot;
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(final int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset can't be negative");
+        }
+        this.offset = offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(final int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit can't be negative");
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * @return The sort keys in priority order. Transactions are ordered by
+     *         time after the given keys.
+     */
+    public List<TransactionSort> getSortOrder() {
+        return Collections.unmodifiableList(sortOrder);
+    }
+
+    public void setSortOrder(final List<TransactionSort> sortOrder) {
+        this.sortOrder.clear();
+        this.sortOrder.addAll(sortOrder);
+    }
+
+    public void addSortOrder(final TransactionField field,
+            final boolean ascending) {
+        sortOrder.add(new TransactionSort(field, ascending));
+    }
+
+    public String getFilterText() {
+        return filterText;
+    }
+
+    /**
+     * @param filterText
+     *            Case insensitive text that at least one of the filter fields
+     *            must contain, or null to include all transactions.
+     */
+    public void setFilterText(final String filterText) {
+        this.filterText = filterText;
+    }
+
+    public Set<TransactionField> getFilterFields() {
+        return Collections.unmodifiableSet(filterFields);
+    }
+
+    public void setFilterFields(final Set<TransactionField> filterFields) {
+        for (TransactionField field : filterFields) {
+            if (!field.isText()) {
+                throw new IllegalArgumentException("Can't filter by " + field);
+            }
+        }
+        this.filterFields = EnumSet.copyOf(filterFields);
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * @param startDate
+     *            The earliest time to include, or null for no lower bound.
+     */
+    public void setStartDate(final Date startDate) {
+        this.startDate = startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * @param endDate
+     *            The latest time to include, or null for no upper bound.
+     */
+    public void setEndDate(final Date endDate) {
+        this.endDate = endDate;
+    }
+
+    public Long getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @param snapshot
+     *            The {@link TransactionPage#getSnapshot() snapshot} of an
+     *            earlier page to only include the transactions recorded by
+     *            then, so that following pages stay consistent while new
+     *            sales are recorded, or null to include all transactions. If
+     *            the backend replaced its transactions since, the snapshot is
+     *            ignored and the page has a different snapshot.
+     */
+    public void setSnapshot(final Long snapshot) {
+        this.snapshot = snapshot;
+    }
+
+}
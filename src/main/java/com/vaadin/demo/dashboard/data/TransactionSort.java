@@ -0,0 +1,40 @@
+package com.vaadin.demo.dashboard.data;
+
+/**
+ * A single sort key of a {@link TransactionQuery}.
+ */
+public final class TransactionSort {
+    private final TransactionField field;
+    private final boolean ascending;
+
+    public TransactionSort(final TransactionField field, final boolean ascending) {
+        if (field == null) {
+            throw new IllegalArgumentException("Sort field can't be null");
+        }
+        this.field = field;
+        this.ascending = ascending;
+    }
+
+    public TransactionField getField() {
+        return field;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof TransactionSort)) {
+            return false;
+        }
+        TransactionSort other = (TransactionSort) obj;
+        return field == other.field && ascending == other.ascending;
+    }
+
+    @Override
+    public int hashCode() {
+        return field.hashCode() * 31 + (ascending ? 1 : 0);
+    }
+
+}
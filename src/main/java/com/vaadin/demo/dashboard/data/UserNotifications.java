@@ -0,0 +1,50 @@
+package com.vaadin.demo.dashboard.data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import com.vaadin.demo.dashboard.domain.DashboardNotification;
+
+/**
+ * The notifications of a logged in user and which of them have been read.
+ * This is the per-user part of the backend state: it's kept in the session of
+ * the user while the {@link DataProvider} is shared by the whole application.
+ */
+public final class UserNotifications implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Collection<DashboardNotification> notifications;
+
+    public UserNotifications(
+            final Collection<DashboardNotification> notifications) {
+        this.notifications = Collections
+                .unmodifiableCollection(new ArrayList<DashboardNotification>(
+                        notifications));
+    }
+
+    /**
+     * @return The number of notifications not read yet.
+     */
+    public int getUnreadCount() {
+        int count = 0;
+        for (DashboardNotification notification : notifications) {
+            if (!notification.isRead()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return All the notifications, which are marked as read.
+     */
+    public Collection<DashboardNotification> readAll() {
+        for (DashboardNotification notification : notifications) {
+            notification.setRead(true);
+        }
+        return notifications;
+    }
+}
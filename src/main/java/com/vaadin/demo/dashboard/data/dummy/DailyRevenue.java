@@ -0,0 +1,93 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revenue and number of sales per local calendar day and movie over all the
+ * rows of a store, computed with a {@link PartitionedScan}. This is the
+ * starting point for the per movie revenue series and the running totals of
+ * a new data set, which are then built from days instead of rows.
+ */
+final class DailyRevenue {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * The sales of one day, indexed by the movie code of the store.
+     */
+    static final class Day {
+        final long[] cents;
+        final int[] sales;
+
+        Day(final int movieCount) {
+            cents = new long[movieCount];
+            sales = new int[movieCount];
+        }
+
+        private void addAll(final Day other) {
+            for (int i = 0; i < cents.length; i++) {
+                cents[i] += other.cents[i];
+                sales[i] += other.sales[i];
+            }
+        }
+    }
+
+    private final NavigableMap<Long, Day> days;
+
+    private DailyRevenue(final NavigableMap<Long, Day> days) {
+        this.days = days;
+    }
+
+    /**
+     * @return The sales of each day with any, ordered by day.
+     */
+    NavigableMap<Long, Day> getDays() {
+        return days;
+    }
+
+    static DailyRevenue of(final TransactionStore store) {
+        final int movieCount = store.movieCount();
+        return new DailyRevenue(new PartitionedScan<NavigableMap<Long, Day>>() {
+            @Override
+            NavigableMap<Long, Day> scan(final int from, final int to) {
+                NavigableMap<Long, Day> result = new TreeMap<Long, Day>();
+                Day day = null;
+                long dayEnd = Long.MIN_VALUE;
+                for (int row = from; row < to; row++) {
+                    long time = store.time(row);
+                    if (time >= dayEnd) {
+                        // Rows are in time order, so days change rarely
+                        long start = MovieRevenueSeries.startOfDay(time);
+                        dayEnd = MovieRevenueSeries.startOfDay(start + DAY
+                                + DAY / 2);
+                        day = new Day(movieCount);
+                        result.put(start, day);
+                    }
+                    int movie = store.movieCode(row);
+                    day.cents[movie] += store.priceCents(row);
+                    day.sales[movie]++;
+                }
+                return result;
+            }
+
+            @Override
+            NavigableMap<Long, Day> merge(
+                    final NavigableMap<Long, Day> earlier,
+                    final NavigableMap<Long, Day> later) {
+                for (Map.Entry<Long, Day> entry : later.entrySet()) {
+                    Day day = earlier.get(entry.getKey());
+                    if (day == null) {
+                        earlier.put(entry.getKey(), entry.getValue());
+                    } else {
+                        // The day spans both ranges
+                        day.addAll(entry.getValue());
+                    }
+                }
+                return earlier;
+            }
+        }.invoke(0, store.size()));
+    }
+}
@@ -0,0 +1,367 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.vaadin.demo.dashboard.domain.Movie;
+import com.vaadin.demo.dashboard.domain.MovieRevenue;
+import com.vaadin.demo.dashboard.domain.Transaction;
+
+/**
+ * A snapshot of all the data served by {@link DummyDataProvider}. A snapshot
+ * is fully built before it's published, so readers holding a reference to it
+ * always see a consistent state. After publishing, the snapshot only changes
+ * by appending new sales through {@link #addTransaction(Transaction)}.
+ */
+final class DataSet {
+
+    /* How long queued sales are held back to put them in time order */
+    static final long MAX_SKEW_MILLIS = 1000;
+
+    /* Tells the data sets of this JVM apart in pinned transaction queries */
+    private static final AtomicInteger GENERATIONS = new AtomicInteger();
+
+    private static final Comparator<Transaction> BY_TIME = new Comparator<Transaction>() {
+        @Override
+        public int compare(final Transaction t1, final Transaction t2) {
+            return t1.getTime().compareTo(t2.getTime());
+        }
+    };
+
+    private final Date created;
+    private final ImmutableMultimap<String, String> countryToCities;
+    private final MovieCatalog movies;
+    private final TransactionStore transactions;
+    private final ImmutableMap<Long, MovieRevenueSeries> revenue;
+    private final RevenueCube revenueCube;
+    private final RevenueTotals revenueTotals;
+    private final RevenueRanking revenueRanking;
+    private final SalesSketches salesSketches;
+    private final SalesMetrics salesMetrics;
+    private final TransactionQueryEngine queryEngine;
+    // Rows the data set was built with, later rows are live sales
+    private final int generated;
+    // Queued sales held back to be recorded in time order
+    private final PriorityQueue<Transaction> pending = new PriorityQueue<Transaction>(
+            11, BY_TIME);
+    private volatile long dropped;
+
+    DataSet(final Date created,
+            final Multimap<String, String> countryToCities,
+            final Collection<Movie> movies,
+            final TransactionStore transactions) {
+        this.created = new Date(created.getTime());
+        this.countryToCities = ImmutableListMultimap.copyOf(countryToCities);
+        this.movies = new MovieCatalog(movies);
+        this.transactions = transactions;
+        // Scanned once in parallel for both the series and the totals
+        DailyRevenue dailyRevenue = DailyRevenue.of(transactions);
+        revenue = ImmutableMap.copyOf(countRevenues(movies, transactions,
+                dailyRevenue));
+        revenueCube = new RevenueCube(transactions);
+        revenueTotals = new RevenueTotals(dailyRevenue);
+        revenueRanking = new RevenueRanking(movies, transactions, dailyRevenue);
+        salesSketches = SalesSketches.of(transactions);
+        salesMetrics = SalesMetrics.of(transactions);
+        queryEngine = new TransactionQueryEngine(transactions,
+                GENERATIONS.incrementAndGet());
+        generated = transactions.size();
+    }
+
+    private static Map<Long, MovieRevenueSeries> countRevenues(
+            final Collection<Movie> movies,
+            final TransactionStore transactions,
+            final DailyRevenue dailyRevenue) {
+        Map<Long, MovieRevenueSeries> result = new HashMap<Long, MovieRevenueSeries>();
+        for (Movie movie : movies) {
+            result.put(movie.getId(), new MovieRevenueSeries(movie.getTitle()));
+        }
+        MovieRevenueSeries[] byCode = new MovieRevenueSeries[transactions
+                .movieCount()];
+        for (int i = 0; i < byCode.length; i++) {
+            byCode[i] = result.get(transactions.movieIdOf(i));
+        }
+        // Days are in order so every day lands in the latest bucket
+        for (Map.Entry<Long, DailyRevenue.Day> entry : dailyRevenue.getDays()
+                .entrySet()) {
+            DailyRevenue.Day day = entry.getValue();
+            for (int movie = 0; movie < byCode.length; movie++) {
+                if (day.sales[movie] > 0 && byCode[movie] != null) {
+                    byCode[movie].add(entry.getKey(), day.cents[movie]);
+                }
+            }
+        }
+        return result;
+    }
+
+    Date getCreated() {
+        return new Date(created.getTime());
+    }
+
+    ImmutableMultimap<String, String> getCountryToCities() {
+        return countryToCities;
+    }
+
+    Collection<Movie> getMovies() {
+        return movies.getMovies();
+    }
+
+    MovieCatalog getMovieCatalog() {
+        return movies;
+    }
+
+    TransactionStore getTransactions() {
+        return transactions;
+    }
+
+    List<MovieRevenue> getRevenue(final long movieId) {
+        MovieRevenueSeries series = revenue.get(movieId);
+        if (series == null) {
+            return Collections.emptyList();
+        }
+        return series.cumulativeRevenues();
+    }
+
+    RevenueCube getRevenueCube() {
+        return revenueCube;
+    }
+
+    RevenueTotals getRevenueTotals() {
+        return revenueTotals;
+    }
+
+    RevenueRanking getRevenueRanking() {
+        return revenueRanking;
+    }
+
+    SalesSketches getSalesSketches() {
+        return salesSketches;
+    }
+
+    SalesMetrics getSalesMetrics() {
+        return salesMetrics;
+    }
+
+    TransactionQueryEngine getQueryEngine() {
+        return queryEngine;
+    }
+
+    /**
+     * Appends a sale to the transactions and updates the revenue of its
+     * movie, the revenue cube, the running totals, the revenue ranking, the
+     * sales sketches and the sales metrics in constant time. The ranking and
+     * the sketches include the sale after the next {@link #flush()}. Queued
+     * sales up to the time of the sale are recorded first, so they're not
+     * dropped for arriving after it. Callers must make sure there is only one
+     * writer at a time.
+     */
+    void addTransaction(final Transaction transaction) {
+        MovieRevenueSeries series = revenue.get(transaction.getMovieId());
+        if (series == null) {
+            throw new IllegalArgumentException("Unknown movie: "
+                    + transaction.getMovieId());
+        }
+        long time = transaction.getTime().getTime();
+        recordUntil(time);
+        transactions.append(time, transaction.getMovieId(),
+                transaction.getTitle(), transaction.getCountry(),
+                transaction.getCity(), transaction.getTheater(),
+                transaction.getRoom(), transaction.getSeats(),
+                transaction.getPrice());
+        int cents = TransactionStore.toCents(transaction.getPrice());
+        series.add(time, cents);
+        int row = transactions.size() - 1;
+        revenueCube.add(row);
+        revenueTotals.add(cents);
+        revenueRanking.add(transaction.getMovieId(), time, cents);
+        salesSketches.add(transactions, row);
+        salesMetrics.add(transactions, row);
+    }
+
+    /**
+     * Publishes the sales added one by one since the previous flush to the
+     * readers of the revenue ranking and the sales sketches. Callers must
+     * hold the writer's lock.
+     */
+    void flush() {
+        revenueRanking.flush();
+        salesSketches.flush();
+    }
+
+    /**
+     * Queues a batch of sales to be recorded like
+     * {@link #addTransaction(Transaction)} in time order. Box offices record
+     * sales concurrently, so a sale may arrive after newer ones; sales are
+     * held back for {@value #MAX_SKEW_MILLIS} ms to put them in order, and
+     * the sales held back until the given time are recorded right away. A
+     * sale arriving later than that, or dated further ahead of the given
+     * time, is dropped and counted in {@link #droppedCount()}. Callers must
+     * make sure there is only one writer at a time.
+     *
+     * @param now
+     *            The current time.
+     * @return The sales that were not queued because their movie is not
+     *         known.
+     */
+    List<Transaction> addTransactions(final List<Transaction> batch,
+            final long now) {
+        List<Transaction> rejected = new ArrayList<Transaction>();
+        for (Transaction transaction : batch) {
+            if (!revenue.containsKey(transaction.getMovieId())) {
+                rejected.add(transaction);
+            } else if (transaction.getTime().getTime() > now
+                    + MAX_SKEW_MILLIS) {
+                dropped++;
+            } else {
+                pending.add(transaction);
+            }
+        }
+        recordPending(now);
+        return rejected;
+    }
+
+    /**
+     * Records the queued sales that have been held back for long enough by
+     * the given time, and publishes the new rows of the store to readers at
+     * once. Called regularly so that the last sales of a burst don't wait for
+     * the next batch. Callers must make sure there is only one writer at a
+     * time.
+     */
+    void recordPending(final long now) {
+        recordUntil(now - MAX_SKEW_MILLIS);
+    }
+
+    /**
+     * Records the queued sales up to the given time.
+     */
+    private void recordUntil(final long until) {
+        if (pending.isEmpty() || pending.peek().getTime().getTime() > until) {
+            return;
+        }
+        int size = transactions.size();
+        long latest = size == 0 ? Long.MIN_VALUE : transactions
+                .time(size - 1);
+        try {
+            while (!pending.isEmpty()
+                    && pending.peek().getTime().getTime() <= until) {
+                Transaction transaction = pending.poll();
+                long time = transaction.getTime().getTime();
+                if (time < latest) {
+                    // Newer sales have been recorded already
+                    dropped++;
+                    continue;
+                }
+                try {
+                    stage(transaction);
+                } catch (IllegalArgumentException e) {
+                    // Too many distinct values for the store
+                    dropped++;
+                    continue;
+                }
+                latest = time;
+            }
+        } finally {
+            transactions.publish();
+            flush();
+        }
+    }
+
+    /**
+     * @return The time of the first sale recorded after this data set was
+     *         built, or {@link Long#MAX_VALUE} if there is none yet.
+     */
+    long firstLiveTime() {
+        return transactions.size() > generated ? transactions.time(generated)
+                : Long.MAX_VALUE;
+    }
+
+    /**
+     * Carries over the sales recorded in the given data set after it was
+     * built, and the sales it still holds back, when this data set replaces
+     * it. The sales are recorded in order after the generated ones of this
+     * data set. Callers must hold the writer's lock.
+     *
+     * @return The number of sales that could not be carried over because
+     *         their movie is not known anymore, they're older than the
+     *         transactions of this data set or the store rejected them.
+     */
+    int carryOver(final DataSet previous) {
+        TransactionStore live = previous.transactions;
+        int size = transactions.size();
+        long latest = size == 0 ? Long.MIN_VALUE : transactions
+                .time(size - 1);
+        int lost = 0;
+        try {
+            for (int row = previous.generated; row < live.size(); row++) {
+                Transaction transaction = live.toTransaction(row);
+                long time = transaction.getTime().getTime();
+                if (!revenue.containsKey(transaction.getMovieId())
+                        || time < latest) {
+                    lost++;
+                    continue;
+                }
+                try {
+                    stage(transaction);
+                } catch (IllegalArgumentException e) {
+                    lost++;
+                    continue;
+                }
+                latest = time;
+            }
+        } finally {
+            transactions.publish();
+            flush();
+        }
+        for (Transaction transaction : previous.pending) {
+            if (revenue.containsKey(transaction.getMovieId())) {
+                pending.add(transaction);
+            } else {
+                lost++;
+            }
+        }
+        dropped += previous.dropped;
+        return lost;
+    }
+
+    /**
+     * Stages a sale of a known movie, not older than the staged ones.
+     *
+     * @throws IllegalArgumentException
+     *             if the store rejects the sale, before anything is updated
+     */
+    private void stage(final Transaction transaction) {
+        long time = transaction.getTime().getTime();
+        int row = transactions.stage(time, transaction.getMovieId(),
+                transaction.getTitle(), transaction.getCountry(),
+                transaction.getCity(), transaction.getTheater(),
+                transaction.getRoom(), transaction.getSeats(),
+                transaction.getPrice());
+        int cents = TransactionStore.toCents(transaction.getPrice());
+        revenue.get(transaction.getMovieId()).add(time, cents);
+        revenueCube.add(row);
+        revenueTotals.add(cents);
+        revenueRanking.add(transaction.getMovieId(), time, cents);
+        salesSketches.add(transactions, row);
+        salesMetrics.add(transactions, row);
+    }
+
+    /**
+     * @return The number of queued sales dropped because they arrived too
+     *         late, were dated too far ahead or the store rejected them.
+     */
+    long droppedCount() {
+        return dropped;
+    }
+}
@@ -2,13 +2,17 @@ package com.vaadin.demo.dashboard.data.dummy;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Random;
 
 import com.vaadin.addon.charts.model.style.Color;
 import com.vaadin.addon.charts.model.style.SolidColor;
 import com.vaadin.demo.dashboard.domain.DashboardNotification;
+import com.vaadin.demo.dashboard.domain.User;
 
 public abstract class DummyDataGenerator {
 
+    private static final Random rand = new Random();
+
     static String randomFirstName() {
         String[] names = { "Dave", "Mike", "Katherine", "Jonas", "Linus",
                 "Bob", "Anne", "Minna", "Elisa", "George", "Mathias", "Pekka",
@@ -123,7 +127,7 @@ public abstract class DummyDataGenerator {
         return sb.toString();
     }
 
-    static Collection<DashboardNotification> randomNotifications() {
+    public static Collection<DashboardNotification> randomNotifications() {
         DashboardNotification n1 = new DashboardNotification();
         n1.setId(1);
         n1.setFirstName(randomFirstName());
@@ -143,14 +147,19 @@ public abstract class DummyDataGenerator {
         return Arrays.asList(n1, n2);
     }
 
-    public static int[] randomSparklineValues(int howMany, int min, int max) {
-        int[] values = new int[howMany];
-
-        for (int i = 0; i < howMany; i++) {
-            values[i] = (int) (min + (Math.random() * (max - min)));
-        }
-
-        return values;
+    public static User randomUser() {
+        User user = new User();
+        user.setFirstName(randomFirstName());
+        user.setLastName(randomLastName());
+        user.setRole("admin");
+        String email = user.getFirstName().toLowerCase() + "."
+                + user.getLastName().toLowerCase() + "@"
+                + randomCompanyName().toLowerCase() + ".com";
+        user.setEmail(email.replaceAll(" ", ""));
+        user.setLocation(randomWord(5, true));
+        user.setBio("Quis aute iure reprehenderit in voluptate velit esse."
+                + "Cras mattis iudicium purus sit amet fermentum.");
+        return user;
     }
 
     public static Color[] chartColors = new Color[] {
@@ -2,46 +2,44 @@ package com.vaadin.demo.dashboard.data.dummy;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.Reader;
+import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.Charset;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
-import com.google.common.base.Function;
-import com.google.common.base.Predicate;
-import com.google.common.collect.Collections2;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.vaadin.demo.dashboard.data.DataProvider;
+import com.vaadin.demo.dashboard.data.RevenueDimension;
+import com.vaadin.demo.dashboard.data.SalesMetric;
+import com.vaadin.demo.dashboard.data.SymbolTable;
+import com.vaadin.demo.dashboard.data.TransactionIngestion;
+import com.vaadin.demo.dashboard.data.TransactionPage;
+import com.vaadin.demo.dashboard.data.TransactionQuery;
 import com.vaadin.demo.dashboard.domain.DashboardNotification;
 import com.vaadin.demo.dashboard.domain.Movie;
 import com.vaadin.demo.dashboard.domain.MovieRevenue;
+import com.vaadin.demo.dashboard.domain.RevenueGroup;
 import com.vaadin.demo.dashboard.domain.Transaction;
 import com.vaadin.demo.dashboard.domain.User;
-import com.vaadin.server.VaadinRequest;
-import com.vaadin.util.CurrentInstance;
 
 /**
  * A dummy implementation for the backend API.
@@ -51,174 +49,335 @@ public class DummyDataProvider implements DataProvider {
     // TODO: Get API key from http://developer.rottentomatoes.com
     private static final String ROTTEN_TOMATOES_API_KEY = null;
 
-    /* List of countries and cities for them */
-    private static Multimap<String, String> countryToCities;
-    private static Date lastDataUpdate;
-    private static Collection<Movie> movies;
-    private static Multimap<Long, Transaction> transactions;
-    private static Multimap<Long, MovieRevenue> revenue;
+    /* Data is rebuilt in the background once it gets older than this */
+    private static final long REFRESH_INTERVAL_HOURS = 24;
 
-    private static Random rand = new Random();
+    /*
+     * Sales added one by one reach the ranking and sketches, and held back
+     * offered sales are recorded, this often
+     */
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
 
-    private final Collection<DashboardNotification> notifications = DummyDataGenerator
-            .randomNotifications();
+    /* Sales offered by box offices waiting to be recorded, and batch size */
+    private static final int INGESTION_CAPACITY = 1 << 16;
+    private static final int INGESTION_BATCH_SIZE = 1024;
 
-    /**
-     * Initialize the data for this application.
+    /* The local copy of the movie list and the list used until there is one */
+    static final String MOVIES_FILE = "movies.txt";
+    static final String FALLBACK_MOVIES_FILE = "movies-fallback.txt";
+
+    /* Generated transactions are kept here, next to the movie cache */
+    private static final String SNAPSHOT_FILE = "transactions.snapshot";
+
+    private static final Logger LOGGER = Logger
+            .getLogger(DummyDataProvider.class.getName());
+
+    /*
+     * The current data snapshot. A refresh builds a complete new snapshot and
+     * publishes it with a single reference swap so readers never block and
+     * never see a partially built data set.
      */
-    public DummyDataProvider() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_YEAR, -1);
-        if (lastDataUpdate == null || lastDataUpdate.before(cal.getTime())) {
-            refreshStaticData();
-            lastDataUpdate = new Date();
-        }
-    }
+    private static final AtomicReference<DataSet> dataSet = new AtomicReference<DataSet>();
 
-    private void refreshStaticData() {
-        countryToCities = loadTheaterData();
-        movies = loadMoviesData();
-        transactions = generateTransactionsData();
-        revenue = countRevenues();
-    }
+    /* Serializes appends of new sales to the current snapshot */
+    private static final Object WRITE_LOCK = new Object();
 
-    /**
-     * Get a list of movies currently playing in theaters.
-     *
-     * @return a list of Movie objects
+    /*
+     * Runs the data refreshes, the movie list revalidation and the flushes of
+     * single sales, until the data is closed
      */
-    @Override
-    public Collection<Movie> getMovies() {
-        return Collections.unmodifiableCollection(movies);
-    }
+    private static ScheduledExecutorService refresher;
+
+    private static MovieCatalogService movieCatalog;
+
+    /* Records offered sales in batches, see offerTransaction */
+    private static TransactionIngestion ingestion;
+
+    /* Dropped sales already logged, only used by the flushes */
+    private static long reportedDrops;
 
     /**
-     * Initialize the list of movies playing in theaters currently. Uses the
-     * Rotten Tomatoes API to get the list. The result is cached to a local file
-     * for 24h (daily limit of API calls is 10,000).
+     * Initialize the data for this application.
      *
-     * @return
+     * @param baseDirectory
+     *            The directory of the movie lists and the transaction
+     *            snapshot.
      */
-    private static Collection<Movie> loadMoviesData() {
+    public DummyDataProvider(final File baseDirectory) {
+        if (dataSet.get() == null) {
+            initStaticData(baseDirectory);
+        }
+    }
 
-        JsonObject json = null;
-        File cache;
-        VaadinRequest vaadinRequest = CurrentInstance.get(VaadinRequest.class);
+    private static synchronized void initStaticData(final File baseDirectory) {
+        if (dataSet.get() != null) {
+            return;
+        }
+        refresher = Executors
+                .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("dashboard-data-refresh")
+                        .setDaemon(true).build());
+        movieCatalog = new MovieCatalogService(moviesUrl(), new File(
+                baseDirectory, MOVIES_FILE), new File(baseDirectory,
+                FALLBACK_MOVIES_FILE), refresher, new Runnable() {
+            @Override
+            public void run() {
+                // New movies need new transactions
+                refresh(baseDirectory);
+            }
+        });
+        // The theater list and the snapshot don't depend on the movies, so
+        // they're read while the catalog loads
+        ForkJoinTask<Multimap<String, String>> theaterData = ForkJoinPool
+                .commonPool().submit(new Callable<Multimap<String, String>>() {
+                    @Override
+                    public Multimap<String, String> call() {
+                        return loadTheaterData();
+                    }
+                });
+        ForkJoinTask<TransactionSnapshot> snapshot = ForkJoinPool
+                .commonPool().submit(new Callable<TransactionSnapshot>() {
+                    @Override
+                    public TransactionSnapshot call() {
+                        return readSnapshot(baseDirectory);
+                    }
+                });
+        movieCatalog.start();
 
-        File baseDirectory = vaadinRequest.getService().getBaseDirectory();
-        cache = new File(baseDirectory + "/movies.txt");
+        DataSet initial = loadDataSet(snapshot.join(), theaterData.join());
+        if (initial == null) {
+            initial = createDataSet(baseDirectory, theaterData.join(),
+                    System.currentTimeMillis(), false);
+        }
+        // Unless the movie list has already changed and triggered a refresh
+        dataSet.compareAndSet(null, initial);
 
-        try {
-            if (cache.exists()
-                    && System.currentTimeMillis() < cache.lastModified()
-                            + (1000 * 60 * 60 * 24)) {
-                // Use cache if it's under 24h old
-                json = readJsonFromFile(cache);
-            } else {
-                if (ROTTEN_TOMATOES_API_KEY != null) {
-                    try {
-                        json = readJsonFromUrl("http://api.rottentomatoes.com/api/public/v1.0/lists/movies/in_theaters.json?page_limit=30&apikey="
-                                + ROTTEN_TOMATOES_API_KEY);
-                        // Store in cache
-                        FileWriter fileWriter = new FileWriter(cache);
-                        fileWriter.write(json.toString());
-                        fileWriter.close();
-                    } catch (Exception e) {
-                        json = readJsonFromFile(new File(baseDirectory
-                                + "/movies-fallback.txt"));
-                    }
-                } else {
-                    json = readJsonFromFile(new File(baseDirectory
-                            + "/movies-fallback.txt"));
-                }
+        long refreshInterval = TimeUnit.HOURS.toMillis(REFRESH_INTERVAL_HOURS);
+        long age = System.currentTimeMillis()
+                - initial.getCreated().getTime();
+        refresher.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                refresh(baseDirectory);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        }, Math.max(0, refreshInterval - age), refreshInterval,
+                TimeUnit.MILLISECONDS);
 
-        Collection<Movie> result = new ArrayList<Movie>();
-        if (json != null) {
-            JsonArray moviesJson;
-
-            moviesJson = json.getAsJsonArray("movies");
-            for (int i = 0; i < moviesJson.size(); i++) {
-                JsonObject movieJson = moviesJson.get(i).getAsJsonObject();
-                JsonObject posters = movieJson.get("posters").getAsJsonObject();
-                if (!posters.get("profile").getAsString()
-                        .contains("poster_default")) {
-                    Movie movie = new Movie();
-                    movie.setId(i);
-                    movie.setTitle(movieJson.get("title").getAsString());
-                    try {
-                        movie.setDuration(movieJson.get("runtime").getAsInt());
-                    } catch (Exception e) {
-                        // No need to handle this exception
+        refresher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long dropped;
+                    synchronized (WRITE_LOCK) {
+                        DataSet current = dataSet.get();
+                        current.recordPending(System.currentTimeMillis());
+                        current.flush();
+                        dropped = current.droppedCount();
                     }
-                    movie.setSynopsis(movieJson.get("synopsis").getAsString());
-                    movie.setThumbUrl(posters.get("profile").getAsString()
-                            .replace("_tmb", "_320"));
-                    movie.setPosterUrl(posters.get("detailed").getAsString()
-                            .replace("_tmb", "_640"));
-
-                    try {
-                        JsonObject releaseDates = movieJson
-                                .get("release_dates").getAsJsonObject();
-                        String datestr = releaseDates.get("theater")
-                                .getAsString();
-                        DateFormat df = new SimpleDateFormat("yyyy-MM-dd");
-                        movie.setReleaseDate(df.parse(datestr));
-                    } catch (Exception e) {
-                        e.printStackTrace();
+                    if (dropped > reportedDrops) {
+                        LOGGER.warning("Dropped " + (dropped - reportedDrops)
+                                + " sales that arrived out of order");
                     }
+                    reportedDrops = dropped;
+                } catch (RuntimeException e) {
+                    // An exception would cancel the following flushes
+                    LOGGER.log(Level.WARNING, "Flushing sales failed", e);
+                }
+            }
+        }, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
 
-                    try {
-                        movie.setScore(movieJson.get("ratings")
-                                .getAsJsonObject().get("critics_score")
-                                .getAsInt());
-                    } catch (Exception e) {
-                        // No need to handle this exception
+        ingestion = new TransactionIngestion("dashboard-ingestion",
+                INGESTION_CAPACITY, INGESTION_BATCH_SIZE,
+                new TransactionIngestion.BatchWriter() {
+                    @Override
+                    public void write(final List<Transaction> batch) {
+                        List<Transaction> rejected;
+                        synchronized (WRITE_LOCK) {
+                            rejected = dataSet.get().addTransactions(batch,
+                                    System.currentTimeMillis());
+                        }
+                        if (!rejected.isEmpty()) {
+                            // The movie list changed after the offer
+                            LOGGER.warning("Dropped " + rejected.size()
+                                    + " sales of unknown movies");
+                        }
                     }
+                });
+        ingestion.start();
+    }
 
-                    result.add(movie);
+    /**
+     * Stops the background work shared by all instances: recording offered
+     * sales, refreshes, flushes and the movie list revalidation. The data is
+     * dropped, a new instance loads it again.
+     */
+    @Override
+    public void close() {
+        closeStaticData();
+    }
 
-                }
+    private static synchronized void closeStaticData() {
+        if (dataSet.get() == null) {
+            return;
+        }
+        ingestion.stop();
+        movieCatalog.stop();
+        refresher.shutdownNow();
+        try {
+            // Let a refresh in progress finish before dropping the data
+            if (!refresher.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.warning("Data refresh did not stop in time");
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return result;
+        dataSet.set(null);
     }
 
-    /* JSON utility method */
-    private static String readAll(Reader rd) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        int cp;
-        while ((cp = rd.read()) != -1) {
-            sb.append((char) cp);
+    private static void refresh(final File baseDirectory) {
+        try {
+            // The generated history ends before the live sales of the
+            // current data set, so they can be carried over
+            DataSet current = dataSet.get();
+            long end = Math.min(System.currentTimeMillis()
+                    - DataSet.MAX_SKEW_MILLIS, current == null ? Long.MAX_VALUE
+                    : current.firstLiveTime());
+            DataSet refreshed = createDataSet(baseDirectory,
+                    loadTheaterData(), end, true);
+            int lost = 0;
+            synchronized (WRITE_LOCK) {
+                current = dataSet.get();
+                if (current != null) {
+                    lost = refreshed.carryOver(current);
+                }
+                dataSet.set(refreshed);
+            }
+            if (lost > 0) {
+                LOGGER.warning("Dropped " + lost
+                        + " sales that could not be carried over");
+            }
+        } catch (RuntimeException e) {
+            // Keep serving the previous snapshot
+            LOGGER.log(Level.WARNING, "Refreshing data failed", e);
         }
-        return sb.toString();
     }
 
-    /* JSON utility method */
-    private static JsonObject readJsonFromUrl(String url) throws IOException {
-        InputStream is = new URL(url).openStream();
+    /**
+     * @return The snapshot file or null if there's no usable snapshot.
+     */
+    private static TransactionSnapshot readSnapshot(final File baseDirectory) {
+        File file = new File(baseDirectory, SNAPSHOT_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        TransactionSnapshot snapshot;
         try {
-            BufferedReader rd = new BufferedReader(new InputStreamReader(is,
-                    Charset.forName("UTF-8")));
-            String jsonText = readAll(rd);
-            JsonElement jelement = new JsonParser().parse(jsonText);
-            JsonObject jobject = jelement.getAsJsonObject();
-            return jobject;
-        } finally {
-            is.close();
+            snapshot = TransactionSnapshot.read(file);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Ignoring unreadable snapshot", e);
+            return null;
+        } catch (RuntimeException e) {
+            // Such as a corrupt dictionary or a file too large to map
+            LOGGER.log(Level.WARNING, "Ignoring unusable snapshot", e);
+            return null;
+        }
+        if (System.currentTimeMillis() >= snapshot.getCreated().getTime()
+                + TimeUnit.HOURS.toMillis(REFRESH_INTERVAL_HOURS)) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return The data set with the transactions of the snapshot or null if
+     *         there's no snapshot or it doesn't match the movie catalog.
+     */
+    private static DataSet loadDataSet(final TransactionSnapshot snapshot,
+            final Multimap<String, String> countryToCities) {
+        if (snapshot == null) {
+            return null;
+        }
+        Collection<Movie> movies = movieCatalog.getMovies();
+        TransactionStore transactions = snapshot.getTransactions();
+        Map<Long, String> titles = new HashMap<Long, String>();
+        for (Movie movie : movies) {
+            titles.put(movie.getId(), movie.getTitle());
+        }
+        for (int i = 0; i < transactions.movieCount(); i++) {
+            String title = titles.get(transactions.movieIdOf(i));
+            if (title == null || !title.equals(transactions.movieTitleOf(i))) {
+                // The movie catalog has changed since
+                return null;
+            }
+        }
+        return new DataSet(snapshot.getCreated(), countryToCities, movies,
+                transactions);
+    }
+
+    /**
+     * Generates a new data set with transactions before the given time and
+     * saves them to the snapshot file, either right away or in the
+     * background.
+     */
+    private static DataSet createDataSet(final File baseDirectory,
+            final Multimap<String, String> countryToCities, final long end,
+            final boolean saveNow) {
+        final Date created = new Date();
+        Collection<Movie> movies = movieCatalog.getMovies();
+        final TransactionStore transactions = generateTransactionsData(
+                countryToCities, movies, end);
+        // Live sales may be appended while the snapshot is saved
+        final int generated = transactions.size();
+
+        final File file = new File(baseDirectory, SNAPSHOT_FILE);
+        Runnable save = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    TransactionSnapshot.write(file, created, transactions,
+                            generated);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Saving snapshot failed", e);
+                }
+            }
+        };
+        if (saveNow) {
+            save.run();
+        } else {
+            refresher.execute(save);
         }
+        return new DataSet(created, countryToCities, movies, transactions);
+    }
+
+    /**
+     * Get a list of movies currently playing in theaters.
+     *
+     * @return a list of Movie objects
+     */
+    @Override
+    public Collection<Movie> getMovies() {
+        return dataSet.get().getMovies();
     }
 
-    /* JSON utility method */
-    private static JsonObject readJsonFromFile(File path) throws IOException {
-        BufferedReader rd = new BufferedReader(new FileReader(path));
-        String jsonText = readAll(rd);
-        JsonElement jelement = new JsonParser().parse(jsonText);
-        JsonObject jobject = jelement.getAsJsonObject();
-        return jobject;
+    /**
+     * The list of movies playing in theaters currently comes from the Rotten
+     * Tomatoes API. It's cached to a local file and revalidated every 24h
+     * (daily limit of API calls is 10,000).
+     *
+     * @return The URL of the list or null if there's no API key.
+     */
+    private static URL moviesUrl() {
+        if (ROTTEN_TOMATOES_API_KEY == null) {
+            return null;
+        }
+        try {
+            return new URL(
+                    "http://api.rottentomatoes.com/api/public/v1.0/lists/movies/in_theaters.json?page_limit=30&apikey="
+                            + ROTTEN_TOMATOES_API_KEY);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     /**
@@ -254,7 +413,7 @@ public class DummyDataProvider implements DataProvider {
     /**
      * Parse the list of countries and cities
      */
-    private static Multimap<String, String> loadTheaterData() {
+    static Multimap<String, String> loadTheaterData() {
 
         /* First, read the text file into a string */
         StringBuffer fileData = new StringBuffer(2000);
@@ -283,8 +442,8 @@ public class DummyDataProvider implements DataProvider {
                 .arrayListValues().build();
         for (String line : list.split("\n")) {
             String[] tabs = line.split("\t");
-            String city = tabs[1];
-            String country = tabs[tabs.length - 2];
+            String city = SymbolTable.intern(tabs[1]);
+            String country = SymbolTable.intern(tabs[tabs.length - 2]);
 
             if (!countryToCities.containsKey(country)) {
                 countryToCities.putAll(country, new ArrayList<String>());
@@ -299,235 +458,127 @@ public class DummyDataProvider implements DataProvider {
     /**
      * Create a list of dummy transactions
      *
+     * @param end
+     *            The time all the transactions are before.
      * @return
      */
-    private Multimap<Long, Transaction> generateTransactionsData() {
-        Multimap<Long, Transaction> result = MultimapBuilder.hashKeys()
-                .arrayListValues().build();
-
-        for (Movie movie : movies) {
-            result.putAll(movie.getId(), new ArrayList<Transaction>());
-
-            Calendar cal = Calendar.getInstance();
-            int daysSubtractor = rand.nextInt(150) + 30;
-            cal.add(Calendar.DAY_OF_YEAR, -daysSubtractor);
-
-            Calendar lastDayOfWeek = Calendar.getInstance();
-            lastDayOfWeek.add(Calendar.DAY_OF_YEAR,
-                    Calendar.SATURDAY - cal.get(Calendar.DAY_OF_WEEK));
-
-            while (cal.before(lastDayOfWeek)) {
-
-                int hourOfDay = cal.get(Calendar.HOUR_OF_DAY);
-                if (hourOfDay > 10 && hourOfDay < 22) {
-
-                    Transaction transaction = new Transaction();
-                    transaction.setMovieId(movie.getId());
-                    transaction.setTitle(movie.getTitle());
-
-                    // Country
-                    Object[] array = countryToCities.keySet().toArray();
-                    int i = (int) (Math.random() * (array.length - 1));
-                    String country = array[i].toString();
-                    transaction.setCountry(country);
-
-                    transaction.setTime(cal.getTime());
-
-                    // City
-                    Collection<String> cities = countryToCities.get(country);
-                    transaction.setCity(cities.iterator().next());
-
-                    // Theater
-                    String theater = theaters
-                            .get((int) (rand.nextDouble() * (theaters.size() - 1)));
-                    transaction.setTheater(theater);
-
-                    // Room
-                    String room = rooms.get((int) (rand.nextDouble() * (rooms
-                            .size() - 1)));
-                    transaction.setRoom(room);
-
-                    // Title
-                    int randomIndex = (int) (Math.abs(rand.nextGaussian()) * (movies
-                            .size() / 2.0 - 1));
-                    while (randomIndex >= movies.size()) {
-                        randomIndex = (int) (Math.abs(rand.nextGaussian()) * (movies
-                                .size() / 2.0 - 1));
-                    }
-
-                    // Seats
-                    int seats = (int) (1 + rand.nextDouble() * 3);
-                    transaction.setSeats(seats);
-
-                    // Price (approx. USD)
-                    double price = seats * (2 + (rand.nextDouble() * 8));
-                    transaction.setPrice(price);
-
-                    result.get(movie.getId()).add(transaction);
-                }
-
-                cal.add(Calendar.SECOND, rand.nextInt(500000) + 5000);
-            }
-        }
-
-        return result;
-
+    static TransactionStore generateTransactionsData(
+            final Multimap<String, String> countryToCities,
+            final Collection<Movie> movies, final long end) {
+        return TransactionGenerator.fromSystemProperties(movies.size())
+                .generate(countryToCities, movies, theaters, rooms, end);
     }
 
     public static Movie getMovieForTitle(String title) {
-        for (Movie movie : movies) {
-            if (movie.getTitle().equals(title)) {
-                return movie;
-            }
-        }
-        return null;
+        return dataSet.get().getMovieCatalog().getByTitle(title);
     }
 
     @Override
     public User authenticate(String userName, String password) {
-        User user = new User();
-        user.setFirstName(DummyDataGenerator.randomFirstName());
-        user.setLastName(DummyDataGenerator.randomLastName());
-        user.setRole("admin");
-        String email = user.getFirstName().toLowerCase() + "."
-                + user.getLastName().toLowerCase() + "@"
-                + DummyDataGenerator.randomCompanyName().toLowerCase() + ".com";
-        user.setEmail(email.replaceAll(" ", ""));
-        user.setLocation(DummyDataGenerator.randomWord(5, true));
-        user.setBio("Quis aute iure reprehenderit in voluptate velit esse."
-                + "Cras mattis iudicium purus sit amet fermentum.");
-        return user;
+        return DummyDataGenerator.randomUser();
     }
 
     @Override
     public Collection<Transaction> getRecentTransactions(int count) {
-        List<Transaction> orderedTransactions = Lists.newArrayList(transactions
-                .values());
-        Collections.sort(orderedTransactions, new Comparator<Transaction>() {
-            @Override
-            public int compare(Transaction o1, Transaction o2) {
-                return o2.getTime().compareTo(o1.getTime());
-            }
-        });
-        return orderedTransactions.subList(0,
-                Math.min(count, transactions.values().size() - 1));
+        return dataSet.get().getTransactions().mostRecent(count);
     }
 
-    private Multimap<Long, MovieRevenue> countRevenues() {
-        Multimap<Long, MovieRevenue> result = MultimapBuilder.hashKeys()
-                .arrayListValues().build();
-        for (Movie movie : movies) {
-            result.putAll(movie.getId(), countMovieRevenue(movie));
-        }
-        return result;
+    @Override
+    public Collection<MovieRevenue> getDailyRevenuesByMovie(long id) {
+        return dataSet.get().getRevenue(id);
     }
 
-    private Collection<MovieRevenue> countMovieRevenue(Movie movie) {
-        Map<Date, Double> dailyIncome = new HashMap<Date, Double>();
-        for (Transaction transaction : transactions.get(movie.getId())) {
-            Date day = getDay(transaction.getTime());
-
-            Double currentValue = dailyIncome.get(day);
-            if (currentValue == null) {
-                currentValue = 0.0;
-            }
-            dailyIncome.put(day, currentValue + transaction.getPrice());
-        }
+    @Override
+    public Collection<MovieRevenue> getTotalMovieRevenues() {
+        return dataSet.get().getRevenueRanking().ranking();
+    }
 
-        Collection<MovieRevenue> result = new ArrayList<MovieRevenue>();
+    @Override
+    public Collection<DashboardNotification> getNotifications(final User user) {
+        return DummyDataGenerator.randomNotifications();
+    }
 
-        List<Date> dates = new ArrayList<Date>(dailyIncome.keySet());
-        Collections.sort(dates);
+    @Override
+    public double getTotalSum() {
+        return dataSet.get().getRevenueTotals().totalCents() / 100.0;
+    }
 
-        double revenueSoFar = 0.0;
-        for (Date date : dates) {
-            MovieRevenue movieRevenue = new MovieRevenue();
-            movieRevenue.setTimestamp(date);
-            revenueSoFar += dailyIncome.get(date);
-            movieRevenue.setRevenue(revenueSoFar);
-            movieRevenue.setTitle(movie.getTitle());
-            result.add(movieRevenue);
+    @Override
+    public Movie getMovie(final long movieId) {
+        Movie movie = dataSet.get().getMovieCatalog().get(movieId);
+        if (movie == null) {
+            throw new NoSuchElementException("No movie with id " + movieId);
         }
-
-        return result;
+        return movie;
     }
 
     @Override
-    public Collection<MovieRevenue> getDailyRevenuesByMovie(long id) {
-        return Collections.unmodifiableCollection(revenue.get(id));
+    public Collection<Transaction> getTransactionsBetween(final Date startDate,
+            final Date endDate) {
+        return dataSet.get().getTransactions().between(startDate, endDate);
     }
 
-    private Date getDay(Date time) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(time);
-        cal.set(Calendar.MILLISECOND, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        return cal.getTime();
+    @Override
+    public TransactionPage getTransactions(final TransactionQuery query) {
+        return dataSet.get().getQueryEngine().execute(query);
     }
 
     @Override
-    public Collection<MovieRevenue> getTotalMovieRevenues() {
-        return Collections2.transform(movies,
-                new Function<Movie, MovieRevenue>() {
-                    @Override
-                    public MovieRevenue apply(Movie input) {
-                        return Iterables.getLast(getDailyRevenuesByMovie(input
-                                .getId()));
-                    }
-                });
+    public Collection<RevenueGroup> getRevenueBy(
+            final Set<RevenueDimension> dimensions, final Date startDate,
+            final Date endDate) {
+        return dataSet.get().getRevenueCube()
+                .query(dimensions, startDate, endDate);
     }
 
     @Override
-    public int getUnreadNotificationsCount() {
-        Predicate<DashboardNotification> unreadPredicate = new Predicate<DashboardNotification>() {
-            @Override
-            public boolean apply(DashboardNotification input) {
-                return !input.isRead();
-            }
-        };
-        return Collections2.filter(notifications, unreadPredicate).size();
+    public void addTransaction(final Transaction transaction) {
+        synchronized (WRITE_LOCK) {
+            dataSet.get().addTransaction(transaction);
+        }
     }
 
     @Override
-    public Collection<DashboardNotification> getNotifications() {
-        for (DashboardNotification notification : notifications) {
-            notification.setRead(true);
+    public boolean offerTransaction(final Transaction transaction) {
+        if (dataSet.get().getMovieCatalog().get(transaction.getMovieId()) == null) {
+            throw new IllegalArgumentException("Unknown movie: "
+                    + transaction.getMovieId());
         }
-        return Collections.unmodifiableCollection(notifications);
+        return ingestion.offer(transaction);
     }
 
     @Override
-    public double getTotalSum() {
-        double result = 0;
-        for (Transaction transaction : transactions.values()) {
-            result += transaction.getPrice();
-        }
-        return result;
+    public long getDistinctCountries(final long movieId) {
+        return dataSet.get().getSalesSketches().distinctCountries(movieId);
     }
 
     @Override
-    public Movie getMovie(final long movieId) {
-        return Iterables.find(movies, new Predicate<Movie>() {
-            @Override
-            public boolean apply(Movie input) {
-                return input.getId() == movieId;
-            }
-        });
+    public long getDistinctCities(final long movieId) {
+        return dataSet.get().getSalesSketches().distinctCities(movieId);
     }
 
     @Override
-    public Collection<Transaction> getTransactionsBetween(final Date startDate,
-            final Date endDate) {
-        return Collections2.filter(transactions.values(),
-                new Predicate<Transaction>() {
-                    @Override
-                    public boolean apply(Transaction input) {
-                        return !input.getTime().before(startDate)
-                                && !input.getTime().after(endDate);
-                    }
-                });
+    public double getPricePercentile(final double quantile) {
+        return dataSet.get().getSalesSketches()
+                .pricePercentile(checkQuantile(quantile));
+    }
+
+    @Override
+    public double getSeatsPercentile(final double quantile) {
+        return dataSet.get().getSalesSketches()
+                .seatsPercentile(checkQuantile(quantile));
     }
 
+    @Override
+    public double[] getMetricHistory(final SalesMetric metric,
+            final int points) {
+        return dataSet.get().getSalesMetrics().history(metric, points);
+    }
+
+    private static double checkQuantile(final double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Invalid quantile " + quantile);
+        }
+        return quantile;
+    }
 }
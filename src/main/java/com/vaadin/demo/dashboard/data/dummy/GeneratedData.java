@@ -0,0 +1,64 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import com.vaadin.demo.dashboard.domain.Movie;
+import com.vaadin.demo.dashboard.domain.Transaction;
+
+/**
+ * Movies and transactions generated the same way as the data served by
+ * {@link DummyDataProvider}, but without starting that backend: there is no
+ * movie list revalidation, refresh, snapshot or ingestion. Meant for filling
+ * other backends.
+ */
+public final class GeneratedData {
+
+    private final List<Movie> movies;
+    private final TransactionStore transactions;
+
+    private GeneratedData(final List<Movie> movies,
+            final TransactionStore transactions) {
+        this.movies = Collections.unmodifiableList(movies);
+        this.transactions = transactions;
+    }
+
+    /**
+     * Generates transactions up to now for the local movie list.
+     *
+     * @param baseDirectory
+     *            The directory of the movie lists.
+     */
+    public static GeneratedData generate(final File baseDirectory) {
+        File cache = new File(baseDirectory, DummyDataProvider.MOVIES_FILE);
+        File source = cache.exists() ? cache : new File(baseDirectory,
+                DummyDataProvider.FALLBACK_MOVIES_FILE);
+        List<Movie> movies;
+        try {
+            movies = MovieCatalogCache.load(source);
+        } catch (IOException e) {
+            throw new IllegalStateException("Reading movies from " + source
+                    + " failed", e);
+        }
+        return new GeneratedData(movies,
+                DummyDataProvider.generateTransactionsData(
+                        DummyDataProvider.loadTheaterData(), movies,
+                        System.currentTimeMillis()));
+    }
+
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * @return All the transactions in time order. The list is a view over
+     *         compact storage, each transaction is created when it's read.
+     */
+    public List<Transaction> getTransactions() {
+        return transactions.between(new Date(Long.MIN_VALUE), new Date(
+                Long.MAX_VALUE - 1));
+    }
+}
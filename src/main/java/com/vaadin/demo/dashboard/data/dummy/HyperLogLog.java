@@ -0,0 +1,99 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+/**
+ * Estimates the number of distinct values added to it in constant memory: a
+ * HyperLogLog sketch with 2^{@value #PRECISION} registers, for a standard
+ * error of about 3%. Small counts are estimated with linear counting, which
+ * is close to exact for the few dozen countries a movie typically sells in.
+ * <p>
+ * Values are added by a single writer at a time while readers estimate
+ * concurrently. Registers only ever grow, so a reader racing with the writer
+ * sees a slightly stale but valid sketch. The estimate is cached until a
+ * register changes, which gets rare once the sketch has seen most values.
+ */
+final class HyperLogLog {
+
+    private static final int PRECISION = 10;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers = new byte[REGISTERS];
+    private volatile boolean changed;
+    private volatile long estimate;
+
+    /**
+     * Adds a value, given as a 64-bit hash of it.
+     */
+    void addHash(final long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Position of the first 1 bit in the rest of the hash
+        int rank = Long.numberOfLeadingZeros(hash << PRECISION
+                | 1L << (PRECISION - 1)) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+            changed = true;
+        }
+    }
+
+    /**
+     * Adds a small integer value, like a dictionary code.
+     */
+    void add(final int value) {
+        addHash(mix(value));
+    }
+
+    /**
+     * Adds all the values of another sketch.
+     */
+    void addAll(final HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+                changed = true;
+            }
+        }
+    }
+
+    /**
+     * @return The approximate number of distinct values added.
+     */
+    long estimate() {
+        if (changed) {
+            changed = false;
+            estimate = computeEstimate();
+        }
+        return estimate;
+    }
+
+    private long computeEstimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < REGISTERS; i++) {
+            int register = registers[i];
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double raw = ALPHA * REGISTERS * REGISTERS / sum;
+        if (raw <= 2.5 * REGISTERS && zeros > 0) {
+            return Math.round(REGISTERS * Math.log((double) REGISTERS / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    /**
+     * Spreads the bits of an int over a long (the finalizer of MurmurHash3),
+     * so consecutive codes land in unrelated registers. The constant offset
+     * keeps zero from hashing to zero.
+     */
+    static long mix(final long value) {
+        long h = value + 0x9e3779b97f4a7c15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,120 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An append-only column of ints kept in fixed size segments, either on the
+ * heap or in direct buffers outside of it. Growing the column adds segments
+ * instead of copying the existing values. A column can also be made of
+ * read-only segments of a mapped file, in which case the last segment is
+ * copied when a value is appended to it.
+ * <p>
+ * Values are set by a single writer at a time. Readers only read rows the
+ * writer has published by other means, like a volatile size. A segment that
+ * has to be replaced is published in a new copy of the segment array, so a
+ * published array is never modified under a reader.
+ */
+final class IntColumn {
+
+    static final int SEGMENT_BITS = 16;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final boolean direct;
+    // Never modified once published, replaced segments go to a new copy
+    private volatile IntBuffer[] segments = new IntBuffer[0];
+
+    IntColumn(final boolean direct) {
+        this.direct = direct;
+    }
+
+    /**
+     * Creates a column over the values of the given buffers, in order,
+     * without copying them. All the buffers but the last must hold a whole
+     * number of segments.
+     */
+    IntColumn(final IntBuffer[] parts, final boolean direct) {
+        this.direct = direct;
+        List<IntBuffer> result = new ArrayList<IntBuffer>();
+        for (IntBuffer part : parts) {
+            for (int start = 0; start < part.remaining(); start += SEGMENT_SIZE) {
+                IntBuffer segment = part.duplicate();
+                segment.position(start);
+                segment.limit(Math.min(part.remaining(), start + SEGMENT_SIZE));
+                result.add(segment.slice());
+            }
+        }
+        segments = result.toArray(new IntBuffer[result.size()]);
+    }
+
+    /**
+     * Creates a column of the first values of the given array. On the heap
+     * the segments are views of the array, otherwise the values are copied
+     * to direct buffers.
+     */
+    IntColumn(final int[] values, final int count, final boolean direct) {
+        this.direct = direct;
+        segments = new IntBuffer[(count + SEGMENT_MASK) >>> SEGMENT_BITS];
+        for (int i = 0; i < segments.length; i++) {
+            int start = i << SEGMENT_BITS;
+            int length = Math.min(count - start, SEGMENT_SIZE);
+            if (direct) {
+                segments[i] = allocate(length);
+                segments[i].put(values, start, length);
+            } else {
+                segments[i] = IntBuffer.wrap(values, start, length).slice();
+            }
+        }
+    }
+
+    int get(final int row) {
+        return segments[row >>> SEGMENT_BITS].get(row & SEGMENT_MASK);
+    }
+
+    /**
+     * Sets the value of a row, which must be at most one past the last row
+     * set so far.
+     */
+    void set(final int row, final int value) {
+        int index = row >>> SEGMENT_BITS;
+        int offset = row & SEGMENT_MASK;
+        IntBuffer[] current = segments;
+        IntBuffer segment;
+        if (index == current.length) {
+            segment = allocate(16);
+        } else {
+            segment = current[index];
+        }
+        if (offset >= segment.capacity() || segment.isReadOnly()) {
+            int capacity = Math.max(16, segment.capacity());
+            while (capacity <= offset) {
+                capacity = Math.min(SEGMENT_SIZE, capacity << 1);
+            }
+            IntBuffer source = segment.duplicate();
+            source.position(0);
+            source.limit(Math.min(offset, segment.capacity()));
+            segment = allocate(capacity);
+            segment.put(source);
+        }
+        segment.put(offset, value);
+        if (index == current.length || segment != current[index]) {
+            current = Arrays.copyOf(current, Math.max(index + 1,
+                    current.length));
+            current[index] = segment;
+            segments = current;
+        }
+    }
+
+    private IntBuffer allocate(final int capacity) {
+        if (direct) {
+            return ByteBuffer.allocateDirect(capacity * 4)
+                    .order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+        return IntBuffer.allocate(capacity);
+    }
+}
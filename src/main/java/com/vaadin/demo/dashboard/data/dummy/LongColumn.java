@@ -0,0 +1,111 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code long} counterpart of {@link IntColumn}.
+ */
+final class LongColumn {
+
+    private static final int SEGMENT_BITS = IntColumn.SEGMENT_BITS;
+    private static final int SEGMENT_SIZE = IntColumn.SEGMENT_SIZE;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final boolean direct;
+    // Never modified once published, replaced segments go to a new copy
+    private volatile LongBuffer[] segments = new LongBuffer[0];
+
+    LongColumn(final boolean direct) {
+        this.direct = direct;
+    }
+
+    /**
+     * Creates a column over the values of the given buffers, in order,
+     * without copying them. All the buffers but the last must hold a whole
+     * number of segments.
+     */
+    LongColumn(final LongBuffer[] parts, final boolean direct) {
+        this.direct = direct;
+        List<LongBuffer> result = new ArrayList<LongBuffer>();
+        for (LongBuffer part : parts) {
+            for (int start = 0; start < part.remaining(); start += SEGMENT_SIZE) {
+                LongBuffer segment = part.duplicate();
+                segment.position(start);
+                segment.limit(Math.min(part.remaining(), start + SEGMENT_SIZE));
+                result.add(segment.slice());
+            }
+        }
+        segments = result.toArray(new LongBuffer[result.size()]);
+    }
+
+    /**
+     * Creates a column of the first values of the given array. On the heap
+     * the segments are views of the array, otherwise the values are copied
+     * to direct buffers.
+     */
+    LongColumn(final long[] values, final int count, final boolean direct) {
+        this.direct = direct;
+        segments = new LongBuffer[(count + SEGMENT_MASK) >>> SEGMENT_BITS];
+        for (int i = 0; i < segments.length; i++) {
+            int start = i << SEGMENT_BITS;
+            int length = Math.min(count - start, SEGMENT_SIZE);
+            if (direct) {
+                segments[i] = allocate(length);
+                segments[i].put(values, start, length);
+            } else {
+                segments[i] = LongBuffer.wrap(values, start, length).slice();
+            }
+        }
+    }
+
+    long get(final int row) {
+        return segments[row >>> SEGMENT_BITS].get(row & SEGMENT_MASK);
+    }
+
+    /**
+     * Sets the value of a row, which must be at most one past the last row
+     * set so far.
+     */
+    void set(final int row, final long value) {
+        int index = row >>> SEGMENT_BITS;
+        int offset = row & SEGMENT_MASK;
+        LongBuffer[] current = segments;
+        LongBuffer segment;
+        if (index == current.length) {
+            segment = allocate(16);
+        } else {
+            segment = current[index];
+        }
+        if (offset >= segment.capacity() || segment.isReadOnly()) {
+            int capacity = Math.max(16, segment.capacity());
+            while (capacity <= offset) {
+                capacity = Math.min(SEGMENT_SIZE, capacity << 1);
+            }
+            LongBuffer source = segment.duplicate();
+            source.position(0);
+            source.limit(Math.min(offset, segment.capacity()));
+            segment = allocate(capacity);
+            segment.put(source);
+        }
+        segment.put(offset, value);
+        if (index == current.length || segment != current[index]) {
+            current = Arrays.copyOf(current, Math.max(index + 1,
+                    current.length));
+            current[index] = segment;
+            segments = current;
+        }
+    }
+
+    private LongBuffer allocate(final int capacity) {
+        if (direct) {
+            return ByteBuffer.allocateDirect(capacity * 8)
+                    .order(ByteOrder.nativeOrder()).asLongBuffer();
+        }
+        return LongBuffer.allocate(capacity);
+    }
+}
@@ -0,0 +1,122 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The latest values of a metric, one per fixed time interval, kept in a ring
+ * buffer of {@value #CAPACITY} primitive slots. Intervals are aligned to local
+ * time, so daily values follow calendar days. Recording a value into a newer
+ * interval clears the slots of the intervals it skipped, and values older
+ * than the oldest slot are dropped, so the memory used never grows.
+ * <p>
+ * Values are recorded by the single writer of the data set while any number
+ * of sessions read the history without locking. The writer marks each update
+ * with a version number, odd while the update is in progress, and readers
+ * copy the slots again if the version changed while they read them. Updates
+ * only touch a few slots, so readers rarely retry and never hold up the
+ * writer.
+ */
+final class MetricSeries {
+
+    static final int CAPACITY = 64;
+
+    private final long interval;
+    private final boolean mean;
+    private final double scale;
+    private final AtomicLongArray sums = new AtomicLongArray(CAPACITY);
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(CAPACITY);
+    // Index of the latest interval with a value
+    private volatile long latest = Long.MIN_VALUE;
+    // Odd while the writer updates the slots
+    private volatile int version;
+
+    /**
+     * @param interval
+     *            The length of an interval in milliseconds.
+     * @param mean
+     *            true to report the average of the values of each interval,
+     *            false for their sum.
+     * @param scale
+     *            The divisor applied to the reported values.
+     */
+    MetricSeries(final long interval, final boolean mean, final double scale) {
+        this.interval = interval;
+        this.mean = mean;
+        this.scale = scale;
+    }
+
+    /**
+     * Records a value. Only called by the single writer of the data set.
+     */
+    void add(final long time, final long value) {
+        long index = intervalOf(time);
+        if (latest != Long.MIN_VALUE && index <= latest - CAPACITY) {
+            return;
+        }
+        version++;
+        try {
+            if (latest == Long.MIN_VALUE) {
+                latest = index;
+            } else if (index > latest) {
+                long skipped = Math.min(index - latest, CAPACITY);
+                for (long i = index - skipped + 1; i <= index; i++) {
+                    int slot = slotOf(i);
+                    sums.set(slot, 0);
+                    counts.set(slot, 0);
+                }
+                latest = index;
+            }
+            int slot = slotOf(index);
+            sums.set(slot, sums.get(slot) + value);
+            counts.set(slot, counts.get(slot) + 1);
+        } finally {
+            version++;
+        }
+    }
+
+    /**
+     * @param points
+     *            At most {@value #CAPACITY}.
+     * @return The values of the given number of intervals up to the latest
+     *         one with a value, oldest first. Intervals without values are
+     *         zero.
+     */
+    double[] history(final int points) {
+        long[] pointSums = new long[points];
+        int[] pointCounts = new int[points];
+        long last;
+        int before;
+        do {
+            before = version;
+            last = latest;
+            if (last != Long.MIN_VALUE) {
+                for (int i = 0; i < points; i++) {
+                    int slot = slotOf(last - points + 1 + i);
+                    pointSums[i] = sums.get(slot);
+                    pointCounts[i] = counts.get(slot);
+                }
+            }
+        } while ((before & 1) != 0 || version != before);
+
+        double[] result = new double[points];
+        for (int i = 0; i < points; i++) {
+            if (pointCounts[i] > 0) {
+                double value = mean ? (double) pointSums[i] / pointCounts[i]
+                        : pointSums[i];
+                result[i] = value / scale;
+            }
+        }
+        return result;
+    }
+
+    private long intervalOf(final long time) {
+        return Math.floorDiv(time + TimeZone.getDefault().getOffset(time),
+                interval);
+    }
+
+    private static int slotOf(final long index) {
+        return (int) Math.floorMod(index, (long) CAPACITY);
+    }
+}
@@ -0,0 +1,73 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.vaadin.demo.dashboard.domain.Movie;
+
+/**
+ * The immutable list of movies of a data set, indexed by id and by title.
+ * Movie ids are small and dense, so the id lookup is a plain array access.
+ */
+final class MovieCatalog {
+
+    private final List<Movie> movies;
+    private final Movie[] moviesById;
+    private final Map<Long, Movie> sparseMoviesById;
+    private final Map<String, Movie> moviesByTitle;
+
+    MovieCatalog(final Collection<Movie> movies) {
+        this.movies = Collections.unmodifiableList(new ArrayList<Movie>(
+                movies));
+
+        long maxId = -1;
+        boolean dense = true;
+        for (Movie movie : movies) {
+            if (movie.getId() < 0) {
+                dense = false;
+            }
+            maxId = Math.max(maxId, movie.getId());
+        }
+        dense = dense && maxId < 4L * movies.size() + 64;
+
+        moviesById = dense ? new Movie[(int) maxId + 1] : null;
+        sparseMoviesById = dense ? null : new HashMap<Long, Movie>();
+        moviesByTitle = new HashMap<String, Movie>();
+        for (Movie movie : movies) {
+            if (dense) {
+                moviesById[(int) movie.getId()] = movie;
+            } else {
+                sparseMoviesById.put(movie.getId(), movie);
+            }
+            if (!moviesByTitle.containsKey(movie.getTitle())) {
+                moviesByTitle.put(movie.getTitle(), movie);
+            }
+        }
+    }
+
+    List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * @return The movie with the given id or null if there's no such movie.
+     */
+    Movie get(final long id) {
+        if (moviesById == null) {
+            return sparseMoviesById.get(id);
+        }
+        return id >= 0 && id < moviesById.length ? moviesById[(int) id] : null;
+    }
+
+    /**
+     * @return The first movie with the given title or null if there's no such
+     *         movie.
+     */
+    Movie getByTitle(final String title) {
+        return moviesByTitle.get(title);
+    }
+}
@@ -0,0 +1,249 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import com.vaadin.demo.dashboard.data.SymbolTable;
+import com.vaadin.demo.dashboard.domain.Movie;
+
+/**
+ * Loads movie lists from JSON files and keeps the parsed result in a compact
+ * binary file next to the JSON file, so a list is only parsed again when its
+ * JSON file changes.
+ * <p>
+ * The binary file starts with a format version, the size and modification
+ * time of the JSON file it was parsed from and a checksum of the movie data.
+ * A cache that doesn't match its JSON file or fails the checksum is ignored
+ * and rewritten. The cache is written to a temporary file first and then
+ * renamed into place, so readers never see a partially written file.
+ */
+final class MovieCatalogCache {
+
+    /* "DMVC" */
+    private static final int MAGIC = 0x444D5643;
+    private static final int VERSION = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final Logger LOGGER = Logger
+            .getLogger(MovieCatalogCache.class.getName());
+
+    private MovieCatalogCache() {
+    }
+
+    /**
+     * @return The movies of the given JSON file, read from its binary cache if
+     *         it's up to date.
+     */
+    static List<Movie> load(final File json) throws IOException {
+        File cache = cacheFileOf(json);
+        if (cache.exists()) {
+            try {
+                List<Movie> movies = read(cache, json);
+                if (movies != null) {
+                    return movies;
+                }
+            } catch (IOException e) {
+                // Fall back to parsing the JSON again
+                LOGGER.log(Level.WARNING, "Ignoring unreadable movie cache", e);
+            }
+        }
+
+        List<Movie> movies = parse(json);
+        writeQuietly(cache, json, movies);
+        return movies;
+    }
+
+    /**
+     * Saves a movie list read from the given stream, typically a download, to
+     * the given JSON file and returns its movies. The file is only replaced
+     * once the new list has been parsed successfully.
+     */
+    static List<Movie> store(final InputStream in, final File json)
+            throws IOException {
+        File temp = File.createTempFile(json.getName(), ".tmp", json
+                .getAbsoluteFile().getParentFile());
+        try {
+            Files.copy(in, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            List<Movie> movies = parse(temp);
+            replace(temp, json);
+            writeQuietly(cacheFileOf(json), json, movies);
+            return movies;
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static List<Movie> parse(final File json) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Files.newInputStream(json.toPath()), StandardCharsets.UTF_8));
+        try {
+            return new MovieCatalogParser().parse(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void replace(final File source, final File target)
+            throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static File cacheFileOf(final File json) {
+        String name = json.getName();
+        int extension = name.lastIndexOf('.');
+        if (extension > 0) {
+            name = name.substring(0, extension);
+        }
+        return new File(json.getAbsoluteFile().getParentFile(), name + ".bin");
+    }
+
+    /**
+     * @return The cached movies or null if the cache is not for the current
+     *         version of the JSON file.
+     */
+    private static List<Movie> read(final File cache, final File json)
+            throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                Files.readAllBytes(cache.toPath())));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION
+                || in.readLong() != json.length()
+                || in.readLong() != json.lastModified()) {
+            return null;
+        }
+        long checksum = in.readLong();
+        int length = in.readInt();
+        if (length < 0 || length != in.available()) {
+            throw new IOException("Truncated movie cache: " + cache);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if (crc.getValue() != checksum) {
+            throw new IOException("Corrupt movie cache: " + cache);
+        }
+
+        DataInputStream movieData = new DataInputStream(
+                new ByteArrayInputStream(data));
+        int count = movieData.readInt();
+        List<Movie> movies = new ArrayList<Movie>(count);
+        for (int i = 0; i < count; i++) {
+            Movie movie = new Movie();
+            movie.setId(movieData.readLong());
+            movie.setTitle(SymbolTable.intern(readString(movieData)));
+            movie.setSynopsis(readString(movieData));
+            movie.setThumbUrl(readString(movieData));
+            movie.setPosterUrl(readString(movieData));
+            movie.setDuration(movieData.readInt());
+            long releaseDate = movieData.readLong();
+            movie.setReleaseDate(releaseDate == NO_DATE ? null : new Date(
+                    releaseDate));
+            movie.setScore(movieData.readInt());
+            movies.add(movie);
+        }
+        return movies;
+    }
+
+    private static void writeQuietly(final File cache, final File json,
+            final List<Movie> movies) {
+        try {
+            write(cache, json, movies);
+        } catch (IOException e) {
+            // The cache is only an optimization
+            LOGGER.log(Level.WARNING, "Writing movie cache failed", e);
+        }
+    }
+
+    private static void write(final File cache, final File json,
+            final List<Movie> movies) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream movieData = new DataOutputStream(bytes);
+        movieData.writeInt(movies.size());
+        for (Movie movie : movies) {
+            movieData.writeLong(movie.getId());
+            writeString(movieData, movie.getTitle());
+            writeString(movieData, movie.getSynopsis());
+            writeString(movieData, movie.getThumbUrl());
+            writeString(movieData, movie.getPosterUrl());
+            movieData.writeInt(movie.getDuration());
+            movieData.writeLong(movie.getReleaseDate() == null ? NO_DATE
+                    : movie.getReleaseDate().getTime());
+            movieData.writeInt(movie.getScore());
+        }
+        movieData.flush();
+        byte[] data = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        File temp = File.createTempFile(cache.getName(), ".tmp",
+                cache.getAbsoluteFile().getParentFile());
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    Files.newOutputStream(temp.toPath()));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(json.length());
+                out.writeLong(json.lastModified());
+                out.writeLong(crc.getValue());
+                out.writeInt(data.length);
+                out.write(data);
+            } finally {
+                out.close();
+            }
+            replace(temp, cache);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /*
+     * Strings are written as UTF-8 with an int length, unlike writeUTF which
+     * is limited to 64 KB.
+     */
+    private static void writeString(final DataOutput out, final String value)
+            throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(final DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
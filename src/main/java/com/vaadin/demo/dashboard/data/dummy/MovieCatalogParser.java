@@ -0,0 +1,165 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.vaadin.demo.dashboard.data.SymbolTable;
+import com.vaadin.demo.dashboard.domain.Movie;
+
+/**
+ * Parses a Rotten Tomatoes style movie list straight into {@link Movie}
+ * objects with a streaming {@link JsonReader}, so only one movie at a time
+ * is held in memory besides the result. Movies without a poster are skipped,
+ * but still count for the ids, which are the positions of the movies in the
+ * list.
+ * <p>
+ * A parser is not thread safe.
+ */
+final class MovieCatalogParser {
+
+    private static final String DEFAULT_POSTER = "poster_default";
+
+    private static final Logger LOGGER = Logger
+            .getLogger(MovieCatalogParser.class.getName());
+
+    private final DateFormat releaseDateFormat = new SimpleDateFormat(
+            "yyyy-MM-dd");
+
+    List<Movie> parse(final Reader reader) throws IOException {
+        List<Movie> result = new ArrayList<Movie>();
+        JsonReader json = new JsonReader(reader);
+        try {
+            json.beginObject();
+            while (json.hasNext()) {
+                if ("movies".equals(json.nextName())) {
+                    json.beginArray();
+                    for (int i = 0; json.hasNext(); i++) {
+                        Movie movie = parseMovie(json);
+                        if (movie != null) {
+                            movie.setId(i);
+                            result.add(movie);
+                        }
+                    }
+                    json.endArray();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        } catch (IllegalStateException e) {
+            // Thrown on unexpected tokens
+            throw new IOException("Malformed movie list", e);
+        } finally {
+            json.close();
+        }
+        return result;
+    }
+
+    /**
+     * @return The next movie or null if it has no poster.
+     */
+    private Movie parseMovie(final JsonReader json) throws IOException {
+        Movie movie = new Movie();
+        String profilePoster = null;
+        String detailedPoster = null;
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if ("title".equals(name)) {
+                movie.setTitle(SymbolTable.intern(nextString(json)));
+            } else if ("runtime".equals(name)) {
+                movie.setDuration(nextInt(json));
+            } else if ("synopsis".equals(name)) {
+                movie.setSynopsis(nextString(json));
+            } else if ("posters".equals(name)) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    String poster = json.nextName();
+                    if ("profile".equals(poster)) {
+                        profilePoster = nextString(json);
+                    } else if ("detailed".equals(poster)) {
+                        detailedPoster = nextString(json);
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+            } else if ("release_dates".equals(name)) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    if ("theater".equals(json.nextName())) {
+                        movie.setReleaseDate(parseDate(nextString(json)));
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+            } else if ("ratings".equals(name)) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    if ("critics_score".equals(json.nextName())) {
+                        movie.setScore(nextInt(json));
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+
+        if (profilePoster == null || profilePoster.contains(DEFAULT_POSTER)) {
+            return null;
+        }
+        movie.setThumbUrl(profilePoster.replace("_tmb", "_320"));
+        if (detailedPoster != null) {
+            movie.setPosterUrl(detailedPoster.replace("_tmb", "_640"));
+        }
+        return movie;
+    }
+
+    private Date parseDate(final String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return releaseDateFormat.parse(value);
+        } catch (ParseException e) {
+            LOGGER.log(Level.WARNING, "Ignoring invalid release date "
+                    + value, e);
+            return null;
+        }
+    }
+
+    private static String nextString(final JsonReader json)
+            throws IOException {
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return null;
+        }
+        return json.nextString();
+    }
+
+    /**
+     * @return The next number or 0 if the value is missing or not a number.
+     */
+    private static int nextInt(final JsonReader json) throws IOException {
+        if (json.peek() == JsonToken.NUMBER) {
+            return (int) json.nextDouble();
+        }
+        json.skipValue();
+        return 0;
+    }
+}
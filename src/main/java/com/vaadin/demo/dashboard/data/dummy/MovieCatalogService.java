@@ -0,0 +1,297 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.demo.dashboard.domain.Movie;
+
+/**
+ * Serves the list of movies playing in theaters and keeps it up to date in the
+ * background (stale-while-revalidate).
+ * <p>
+ * The current list is always returned immediately: at start it's read from
+ * the local cache file, regardless of its age, or from the fallback file if
+ * there's no cache yet. Once the cache is older than the maximum age, it's
+ * revalidated against the remote URL with a conditional request, so an
+ * unchanged list costs a {@code 304 Not Modified} instead of a download. The
+ * validators of the last response are kept in a properties file next to the
+ * cache. Failed requests are retried with exponential backoff.
+ * <p>
+ * Requests are made one at a time from the given executor. Response bodies
+ * are always read to the end and closed, so the JDK keeps the connection
+ * alive for the next revalidation.
+ */
+final class MovieCatalogService {
+
+    private static final Logger LOGGER = Logger
+            .getLogger(MovieCatalogService.class.getName());
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 10 * 1000;
+    private static final int READ_TIMEOUT_MILLIS = 30 * 1000;
+
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final String CHECKED = "checked";
+
+    private final URL url;
+    private final File cache;
+    private final File fallback;
+    private final File validators;
+    private final ScheduledExecutorService executor;
+    private final Runnable changeListener;
+
+    private long maxAge = TimeUnit.HOURS.toMillis(24);
+    private long minRetryDelay = TimeUnit.MINUTES.toMillis(1);
+    private long maxRetryDelay = TimeUnit.HOURS.toMillis(1);
+
+    private volatile List<Movie> movies = Collections.emptyList();
+    /* Only accessed by the executor after start */
+    private int failures;
+    private volatile boolean stopped;
+
+    /**
+     * @param url
+     *            The remote movie list or null to only use the local files.
+     * @param cache
+     *            The local copy of the remote list.
+     * @param fallback
+     *            The list to use until there is a local copy.
+     * @param executor
+     *            Runs the revalidation requests.
+     * @param changeListener
+     *            Notified, on the executor, whenever a new list has been
+     *            downloaded.
+     */
+    MovieCatalogService(final URL url, final File cache, final File fallback,
+            final ScheduledExecutorService executor,
+            final Runnable changeListener) {
+        this.url = url;
+        this.cache = cache;
+        this.fallback = fallback;
+        String name = cache.getName();
+        int extension = name.lastIndexOf('.');
+        validators = new File(cache.getAbsoluteFile().getParentFile(),
+                (extension > 0 ? name.substring(0, extension) : name)
+                        + ".properties");
+        this.executor = executor;
+        this.changeListener = changeListener;
+    }
+
+    void setMaxAge(final long maxAge, final TimeUnit unit) {
+        this.maxAge = unit.toMillis(maxAge);
+    }
+
+    void setRetryDelays(final long min, final long max, final TimeUnit unit) {
+        minRetryDelay = unit.toMillis(min);
+        maxRetryDelay = unit.toMillis(max);
+    }
+
+    /**
+     * Loads the local list and schedules its revalidation.
+     */
+    void start() {
+        File source = cache.exists() ? cache : fallback;
+        try {
+            movies = Collections.unmodifiableList(MovieCatalogCache
+                    .load(source));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Reading movies from " + source
+                    + " failed", e);
+        }
+        if (url != null) {
+            schedule(lastChecked() + maxAge - System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @return When the cache was last downloaded or found to be up to date,
+     *         or 0 if there's no cache.
+     */
+    private long lastChecked() {
+        if (!cache.exists()) {
+            return 0;
+        }
+        String checked = readValidators().getProperty(CHECKED);
+        if (checked == null) {
+            return cache.lastModified();
+        }
+        try {
+            return Long.parseLong(checked);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return The current list of movies, never blocks.
+     */
+    List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * Stops revalidating the list. A revalidation in progress completes, but
+     * no new one is scheduled.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    private void schedule(final long delay) {
+        if (stopped) {
+            return;
+        }
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                revalidate();
+            }
+        }, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    private void revalidate() {
+        boolean changed;
+        try {
+            changed = fetch();
+            failures = 0;
+        } catch (IOException e) {
+            failures++;
+            long delay = Math.min(maxRetryDelay,
+                    minRetryDelay << Math.min(failures - 1, 20));
+            LOGGER.log(Level.WARNING, "Revalidating movies failed, retrying in "
+                    + delay + " ms", e);
+            schedule(delay);
+            return;
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Revalidating movies failed", e);
+            schedule(maxAge);
+            return;
+        }
+        schedule(maxAge);
+        if (changed && changeListener != null) {
+            changeListener.run();
+        }
+    }
+
+    /**
+     * @return Whether a new list was downloaded.
+     */
+    private boolean fetch() throws IOException {
+        Properties properties = cache.exists() ? readValidators()
+                : new Properties();
+        HttpURLConnection connection = (HttpURLConnection) url
+                .openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        connection.setUseCaches(false);
+        if (properties.getProperty(ETAG) != null) {
+            connection.setRequestProperty("If-None-Match",
+                    properties.getProperty(ETAG));
+        }
+        if (properties.getProperty(LAST_MODIFIED) != null) {
+            connection.setRequestProperty("If-Modified-Since",
+                    properties.getProperty(LAST_MODIFIED));
+        }
+
+        int status;
+        try {
+            status = connection.getResponseCode();
+        } catch (IOException e) {
+            drain(connection.getErrorStream());
+            throw e;
+        }
+        if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            drain(connection.getInputStream());
+            properties.setProperty(CHECKED,
+                    Long.toString(System.currentTimeMillis()));
+            writeValidators(properties);
+            return false;
+        }
+        if (status != HttpURLConnection.HTTP_OK) {
+            drain(connection.getErrorStream());
+            throw new IOException("Unexpected response " + status + " from "
+                    + url);
+        }
+
+        InputStream in = connection.getInputStream();
+        List<Movie> downloaded;
+        try {
+            downloaded = MovieCatalogCache.store(in, cache);
+        } finally {
+            drain(in);
+        }
+        movies = Collections.unmodifiableList(downloaded);
+
+        Properties updated = new Properties();
+        if (connection.getHeaderField("ETag") != null) {
+            updated.setProperty(ETAG, connection.getHeaderField("ETag"));
+        }
+        if (connection.getHeaderField("Last-Modified") != null) {
+            updated.setProperty(LAST_MODIFIED,
+                    connection.getHeaderField("Last-Modified"));
+        }
+        updated.setProperty(CHECKED,
+                Long.toString(System.currentTimeMillis()));
+        writeValidators(updated);
+        return true;
+    }
+
+    /**
+     * Reads the rest of a response and closes it, which lets the connection
+     * be reused.
+     */
+    private static void drain(final InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) != -1) {
+                // Discard
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private Properties readValidators() {
+        Properties properties = new Properties();
+        if (validators.exists()) {
+            try {
+                InputStream in = Files.newInputStream(validators.toPath());
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                // Revalidate without conditions
+                LOGGER.log(Level.WARNING, "Reading " + validators + " failed",
+                        e);
+            }
+        }
+        return properties;
+    }
+
+    private void writeValidators(final Properties properties)
+            throws IOException {
+        OutputStream out = Files.newOutputStream(validators.toPath());
+        try {
+            properties.store(out, null);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.demo.dashboard.domain.MovieRevenue;
+
+/**
+ * Daily and cumulative revenue of a single movie, kept in cents with one
+ * bucket per local calendar day. Sales are added in O(1) in time order,
+ * which is the order of the {@link TransactionStore} both when the history
+ * is built and for live sales.
+ * <p>
+ * There's a single writer at a time; readers see the buckets published by
+ * the latest volatile write of the size.
+ */
+final class MovieRevenueSeries {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private final String title;
+    private volatile int size;
+    private long[] days = new long[16];
+    private long[] daily = new long[16];
+    private long[] cumulative = new long[16];
+
+    MovieRevenueSeries(final String title) {
+        this.title = title;
+    }
+
+    /**
+     * Adds a sale to the bucket of its day.
+     *
+     * @throws IllegalArgumentException
+     *             if the sale is older than the latest day
+     */
+    void add(final long time, final long cents) {
+        long day = startOfDay(time);
+        int count = size;
+        if (count > 0 && days[count - 1] == day) {
+            daily[count - 1] += cents;
+            cumulative[count - 1] += cents;
+        } else if (count == 0 || days[count - 1] < day) {
+            if (count == days.length) {
+                grow(count << 1);
+            }
+            days[count] = day;
+            daily[count] = cents;
+            cumulative[count] = count == 0 ? cents : cumulative[count - 1]
+                    + cents;
+            count++;
+        } else {
+            throw new IllegalArgumentException(
+                    "Sales must be added in time order");
+        }
+        // Publishes the updated buckets to readers
+        size = count;
+    }
+
+    private void grow(final int capacity) {
+        days = Arrays.copyOf(days, capacity);
+        daily = Arrays.copyOf(daily, capacity);
+        cumulative = Arrays.copyOf(cumulative, capacity);
+    }
+
+    /**
+     * @return The total revenue in cents.
+     */
+    long totalCents() {
+        int count = size;
+        return count == 0 ? 0 : cumulative[count - 1];
+    }
+
+    /**
+     * @return The cumulative revenue by day, materialized on access.
+     */
+    List<MovieRevenue> cumulativeRevenues() {
+        return new RevenueList(size);
+    }
+
+    private MovieRevenue toMovieRevenue(final int index) {
+        return new MovieRevenue(new Date(days[index]),
+                title, cumulative[index] / 100.0);
+    }
+
+    /**
+     * @return The start of the local calendar day of the given time.
+     */
+    static long startOfDay(final long time) {
+        long local = time + TimeZone.getDefault().getOffset(time);
+        long midnight = local - Math.floorMod(local, DAY);
+        return midnight - TimeZone.getDefault().getOffset(midnight);
+    }
+
+    private final class RevenueList extends AbstractList<MovieRevenue>
+            implements RandomAccess {
+
+        private final int count;
+
+        RevenueList(final int count) {
+            this.count = count;
+        }
+
+        @Override
+        public MovieRevenue get(final int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            return toMovieRevenue(index);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A scan over a range of rows of a {@link TransactionStore} run in parallel.
+ * The range is split into partitions aligned to the column segments of the
+ * store, each partition is scanned as a fork/join task and the partial
+ * results are merged pairwise. The store is ordered by time, so each
+ * partition covers a time range of its own and merges always combine an
+ * earlier range with the one right after it.
+ * <p>
+ * Scans only read rows published before they start, so they run concurrently
+ * with the writer.
+ *
+ * @param <R>
+ *            The result of the scan.
+ */
+abstract class PartitionedScan<R> {
+
+    /* Rows scanned by a single task */
+    static final int PARTITION_ROWS = IntColumn.SEGMENT_SIZE;
+
+    /**
+     * Scans the rows of one partition.
+     *
+     * @param from
+     *            The first row, inclusive.
+     * @param to
+     *            The last row, exclusive.
+     */
+    abstract R scan(int from, int to);
+
+    /**
+     * Combines the results of two adjacent ranges of rows. The arguments may
+     * be reused for the result.
+     */
+    abstract R merge(R earlier, R later);
+
+    /**
+     * Scans the given rows, in the calling thread if they fit in a single
+     * partition and in the common fork/join pool otherwise.
+     */
+    final R invoke(final int from, final int to) {
+        if (to - from <= PARTITION_ROWS) {
+            return scan(from, to);
+        }
+        return ForkJoinPool.commonPool().invoke(new Task(from, to));
+    }
+
+    private final class Task extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        Task(final int from, final int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= PARTITION_ROWS) {
+                return scan(from, to);
+            }
+            int middle = Math.max(from + PARTITION_ROWS, (from + to) >>> 1
+                    & -PARTITION_ROWS);
+            Task earlier = new Task(from, middle);
+            earlier.fork();
+            R later = new Task(middle, to).compute();
+            return merge(earlier.join(), later);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.demo.dashboard.data.RevenueDimension;
+import com.vaadin.demo.dashboard.domain.RevenueGroup;
+
+/**
+ * Pre-aggregated revenue by movie, country, theater and room, rolled up per
+ * day and per month. Group-by queries over a date range read whole months
+ * from the monthly cells and only fall back to the daily cells for partially
+ * covered months, so they never touch individual transactions.
+ * <p>
+ * Cells are keyed by the dictionary codes of the {@link TransactionStore},
+ * packed into a single long. The store rejects new sales with codes that
+ * don't fit the key. The cube is updated by a single writer while
+ * readers query it concurrently.
+ */
+final class RevenueCube {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long CODE_MASK = TransactionStore.MAX_CODES - 1;
+    private static final int MOVIE_SHIFT = 48;
+    private static final int COUNTRY_SHIFT = 32;
+    private static final int THEATER_SHIFT = 16;
+    private static final int ROOM_SHIFT = 0;
+
+    private final TransactionStore store;
+    private final ConcurrentNavigableMap<Long, Cells> days = new ConcurrentSkipListMap<Long, Cells>();
+    private final ConcurrentNavigableMap<Long, Cells> months = new ConcurrentSkipListMap<Long, Cells>();
+
+    /**
+     * Creates a cube with all the transactions currently in the store. The
+     * daily cells are built in parallel over partitions of the store and the
+     * monthly cells are rolled up from them.
+     */
+    RevenueCube(final TransactionStore store) {
+        this.store = store;
+        days.putAll(new PartitionedScan<Map<Long, Cells>>() {
+            @Override
+            Map<Long, Cells> scan(final int from, final int to) {
+                Map<Long, Cells> result = new HashMap<Long, Cells>();
+                Cells dayCells = null;
+                for (int row = from; row < to; row++) {
+                    long time = store.time(row);
+                    if (dayCells == null || time >= dayCells.end) {
+                        // Rows are in time order, so days change rarely
+                        dayCells = cellsOfDay(result,
+                                MovieRevenueSeries.startOfDay(time));
+                    }
+                    dayCells.add(keyOf(row), store.priceCents(row),
+                            store.seats(row));
+                }
+                return result;
+            }
+
+            @Override
+            Map<Long, Cells> merge(final Map<Long, Cells> earlier,
+                    final Map<Long, Cells> later) {
+                for (Map.Entry<Long, Cells> entry : later.entrySet()) {
+                    Cells dayCells = earlier.get(entry.getKey());
+                    if (dayCells == null) {
+                        earlier.put(entry.getKey(), entry.getValue());
+                    } else {
+                        // The day spans both partitions
+                        dayCells.addAll(entry.getValue());
+                    }
+                }
+                return earlier;
+            }
+        }.invoke(0, store.size()));
+        for (Cells dayCells : days.values()) {
+            cellsOfMonth(monthOf(dayCells.start)).addAll(dayCells);
+        }
+    }
+
+    /**
+     * Adds the given row of the store to its cells.
+     */
+    void add(final int row) {
+        long day = MovieRevenueSeries.startOfDay(store.time(row));
+        Cells dayCells = cellsOfDay(days, day);
+        Cells monthCells = cellsOfMonth(monthOf(day));
+        long key = keyOf(row);
+        int cents = store.priceCents(row);
+        int seats = store.seats(row);
+        dayCells.add(key, cents, seats);
+        monthCells.add(key, cents, seats);
+    }
+
+    private static Cells cellsOfDay(final Map<Long, Cells> days,
+            final long day) {
+        Cells dayCells = days.get(day);
+        if (dayCells == null) {
+            Calendar cal = Calendar.getInstance();
+            cal.setTimeInMillis(day);
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+            dayCells = new Cells(day, cal.getTimeInMillis());
+            days.put(day, dayCells);
+        }
+        return dayCells;
+    }
+
+    private Cells cellsOfMonth(final long month) {
+        Cells monthCells = months.get(month);
+        if (monthCells == null) {
+            Calendar cal = Calendar.getInstance();
+            cal.setTimeInMillis(month);
+            cal.add(Calendar.MONTH, 1);
+            monthCells = new Cells(month, cal.getTimeInMillis());
+            months.put(month, monthCells);
+        }
+        return monthCells;
+    }
+
+    private long keyOf(final int row) {
+        if (store.movieCode(row) > CODE_MASK
+                || store.countryCode(row) > CODE_MASK
+                || store.theaterCode(row) > CODE_MASK
+                || store.roomCode(row) > CODE_MASK) {
+            throw new IllegalStateException(
+                    "Too many distinct values for a revenue cube dimension");
+        }
+        return ((long) store.movieCode(row) << MOVIE_SHIFT)
+                | ((long) store.countryCode(row) << COUNTRY_SHIFT)
+                | ((long) store.theaterCode(row) << THEATER_SHIFT)
+                | ((long) store.roomCode(row) << ROOM_SHIFT);
+    }
+
+    /**
+     * @return The revenue between the days of the given dates (both
+     *         inclusive), grouped by the given dimensions.
+     */
+    List<RevenueGroup> query(final Set<RevenueDimension> dimensions,
+            final Date startDate, final Date endDate) {
+        long keyMask = keyMask(dimensions);
+        long from = MovieRevenueSeries.startOfDay(startDate.getTime());
+        long to = MovieRevenueSeries.startOfDay(endDate.getTime());
+        List<RevenueGroup> result = new ArrayList<RevenueGroup>();
+        if (from > to) {
+            return result;
+        }
+
+        if (dimensions.contains(RevenueDimension.DAY)) {
+            for (Cells dayCells : days.subMap(from, true, to, true).values()) {
+                Map<Long, Aggregate> groups = new HashMap<Long, Aggregate>();
+                dayCells.aggregateInto(groups, keyMask);
+                toRevenueGroups(groups, new Date(dayCells.start), result);
+            }
+            return result;
+        }
+
+        long until = MovieRevenueSeries.startOfDay(to + DAY + DAY / 2);
+        Long firstMonth = months.floorKey(from);
+        Map<Long, Aggregate> groups = new HashMap<Long, Aggregate>();
+        for (Cells monthCells : months.subMap(
+                firstMonth == null ? from : firstMonth, true, to, true)
+                .values()) {
+            if (monthCells.start >= from && monthCells.end <= until) {
+                monthCells.aggregateInto(groups, keyMask);
+            } else {
+                for (Cells dayCells : days.subMap(
+                        Math.max(from, monthCells.start), true,
+                        Math.min(to, monthCells.end - 1), true).values()) {
+                    dayCells.aggregateInto(groups, keyMask);
+                }
+            }
+        }
+        toRevenueGroups(groups, null, result);
+        return result;
+    }
+
+    private void toRevenueGroups(final Map<Long, Aggregate> groups,
+            final Date day, final Collection<RevenueGroup> result) {
+        for (Map.Entry<Long, Aggregate> entry : groups.entrySet()) {
+            long key = entry.getKey();
+            Aggregate aggregate = entry.getValue();
+            RevenueGroup group = new RevenueGroup();
+            group.setDay(day);
+            if (aggregate.movie) {
+                int movie = (int) (key >>> MOVIE_SHIFT & CODE_MASK);
+                group.setMovieId(store.movieIdOf(movie));
+                group.setTitle(store.movieTitleOf(movie));
+            }
+            if (aggregate.country) {
+                group.setCountry(store.getCountryDictionary().decode(
+                        (int) (key >>> COUNTRY_SHIFT & CODE_MASK)));
+            }
+            if (aggregate.theater) {
+                group.setTheater(store.getTheaterDictionary().decode(
+                        (int) (key >>> THEATER_SHIFT & CODE_MASK)));
+            }
+            if (aggregate.room) {
+                group.setRoom(store.getRoomDictionary().decode(
+                        (int) (key >>> ROOM_SHIFT & CODE_MASK)));
+            }
+            group.setRevenue(aggregate.cents / 100.0);
+            group.setSeats(aggregate.seats);
+            group.setTransactions(aggregate.count);
+            result.add(group);
+        }
+    }
+
+    private static long keyMask(final Set<RevenueDimension> dimensions) {
+        long mask = 0;
+        if (dimensions.contains(RevenueDimension.MOVIE)) {
+            mask |= CODE_MASK << MOVIE_SHIFT;
+        }
+        if (dimensions.contains(RevenueDimension.COUNTRY)) {
+            mask |= CODE_MASK << COUNTRY_SHIFT;
+        }
+        if (dimensions.contains(RevenueDimension.THEATER)) {
+            mask |= CODE_MASK << THEATER_SHIFT;
+        }
+        if (dimensions.contains(RevenueDimension.ROOM)) {
+            mask |= CODE_MASK << ROOM_SHIFT;
+        }
+        return mask;
+    }
+
+    private static long monthOf(final long day) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(day);
+        cal.set(Calendar.DAY_OF_MONTH, 1);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
+    }
+
+    /**
+     * The cells of one day or month.
+     */
+    private static final class Cells {
+
+        private final long start;
+        private final long end;
+        private final ConcurrentMap<Long, Cell> cells = new ConcurrentHashMap<Long, Cell>();
+
+        Cells(final long start, final long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        void add(final long key, final int cents, final int seats) {
+            Cell cell = cells.get(key);
+            if (cell == null) {
+                cell = new Cell();
+                cells.put(key, cell);
+            }
+            cell.cents += cents;
+            cell.seats += seats;
+            cell.count++;
+        }
+
+        void addAll(final Cells other) {
+            for (Map.Entry<Long, Cell> entry : other.cells.entrySet()) {
+                Cell cell = cells.get(entry.getKey());
+                if (cell == null) {
+                    cell = new Cell();
+                    cells.put(entry.getKey(), cell);
+                }
+                Cell otherCell = entry.getValue();
+                cell.cents += otherCell.cents;
+                cell.seats += otherCell.seats;
+                cell.count += otherCell.count;
+            }
+        }
+
+        void aggregateInto(final Map<Long, Aggregate> groups,
+                final long keyMask) {
+            for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+                long group = entry.getKey() & keyMask;
+                Aggregate aggregate = groups.get(group);
+                if (aggregate == null) {
+                    aggregate = new Aggregate(keyMask);
+                    groups.put(group, aggregate);
+                }
+                Cell cell = entry.getValue();
+                aggregate.cents += cell.cents;
+                aggregate.seats += cell.seats;
+                aggregate.count += cell.count;
+            }
+        }
+    }
+
+    /**
+     * A single pre-aggregated cell, only modified by the writer.
+     */
+    private static final class Cell {
+        private volatile long cents;
+        private volatile int seats;
+        private volatile int count;
+    }
+
+    private static final class Aggregate {
+        private final boolean movie;
+        private final boolean country;
+        private final boolean theater;
+        private final boolean room;
+        private long cents;
+        private int seats;
+        private int count;
+
+        Aggregate(final long keyMask) {
+            movie = (keyMask & CODE_MASK << MOVIE_SHIFT) != 0;
+            country = (keyMask & CODE_MASK << COUNTRY_SHIFT) != 0;
+            theater = (keyMask & CODE_MASK << THEATER_SHIFT) != 0;
+            room = (keyMask & CODE_MASK << ROOM_SHIFT) != 0;
+        }
+    }
+}
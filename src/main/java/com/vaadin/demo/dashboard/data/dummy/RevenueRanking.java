@@ -0,0 +1,147 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.vaadin.demo.dashboard.domain.Movie;
+import com.vaadin.demo.dashboard.domain.MovieRevenue;
+
+/**
+ * The movies with sales ranked by their total revenue, highest first, kept
+ * up to date as sales are added. Totals only ever grow, so a sale moves its
+ * movie up past the few movies it overtakes and the ranking never needs a
+ * full sort.
+ * <p>
+ * The single writer of the data set updates the ranking and calls
+ * {@link #flush()} after each batch of sales. Each flush publishes an
+ * immutable list, so readers like the top ten table take it as is without
+ * copying or sorting.
+ */
+final class RevenueRanking {
+
+    private final Map<Long, Integer> slots = new HashMap<Long, Integer>();
+    private final String[] titles;
+    private final long[] cents;
+    // Start of the latest day with sales
+    private final long[] days;
+    // Slots in ranking order, the first count of them have sales
+    private final int[] ranked;
+    // Position of each slot in the ranking, -1 if it has no sales
+    private final int[] positions;
+    private int count;
+    private boolean changed;
+
+    private volatile List<MovieRevenue> ranking = Collections.emptyList();
+
+    /**
+     * Ranks the movies by the daily revenue of all the transactions
+     * currently in the store.
+     */
+    RevenueRanking(final Collection<Movie> movies,
+            final TransactionStore store, final DailyRevenue dailyRevenue) {
+        titles = new String[movies.size()];
+        cents = new long[titles.length];
+        days = new long[titles.length];
+        ranked = new int[titles.length];
+        positions = new int[titles.length];
+        for (Movie movie : movies) {
+            int slot = slots.size();
+            slots.put(movie.getId(), slot);
+            titles[slot] = movie.getTitle();
+            positions[slot] = -1;
+        }
+
+        Integer[] bySlot = new Integer[store.movieCount()];
+        for (int i = 0; i < bySlot.length; i++) {
+            bySlot[i] = slots.get(store.movieIdOf(i));
+        }
+        boolean[] sold = new boolean[titles.length];
+        List<Integer> withSales = new ArrayList<Integer>();
+        for (Map.Entry<Long, DailyRevenue.Day> entry : dailyRevenue.getDays()
+                .entrySet()) {
+            DailyRevenue.Day day = entry.getValue();
+            for (int movie = 0; movie < bySlot.length; movie++) {
+                Integer slot = bySlot[movie];
+                if (day.sales[movie] > 0 && slot != null) {
+                    if (!sold[slot]) {
+                        sold[slot] = true;
+                        withSales.add(slot);
+                    }
+                    cents[slot] += day.cents[movie];
+                    days[slot] = entry.getKey();
+                }
+            }
+        }
+        Collections.sort(withSales, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer s1, final Integer s2) {
+                return Long.compare(cents[s2], cents[s1]);
+            }
+        });
+        for (int slot : withSales) {
+            ranked[count] = slot;
+            positions[slot] = count;
+            count++;
+        }
+        changed = true;
+        flush();
+    }
+
+    /**
+     * Adds a sale of a movie ranked by this instance. The ranking seen by
+     * readers includes it after the next flush.
+     */
+    void add(final long movieId, final long time, final long saleCents) {
+        Integer slot = slots.get(movieId);
+        if (slot == null) {
+            throw new IllegalArgumentException("Unknown movie: " + movieId);
+        }
+        cents[slot] += saleCents;
+        days[slot] = Math.max(days[slot], MovieRevenueSeries.startOfDay(time));
+        int position = positions[slot];
+        if (position < 0) {
+            position = count++;
+        }
+        // Move past the movies this sale made it overtake
+        while (position > 0 && cents[ranked[position - 1]] < cents[slot]) {
+            ranked[position] = ranked[position - 1];
+            positions[ranked[position]] = position;
+            position--;
+        }
+        ranked[position] = slot;
+        positions[slot] = position;
+        changed = true;
+    }
+
+    /**
+     * Publishes the sales added since the previous flush to readers.
+     */
+    void flush() {
+        if (!changed) {
+            return;
+        }
+        MovieRevenue[] result = new MovieRevenue[count];
+        for (int i = 0; i < count; i++) {
+            int slot = ranked[i];
+            result[i] = new MovieRevenue(new Date(days[slot]), titles[slot],
+                    cents[slot] / 100.0);
+        }
+        ranking = ImmutableList.copyOf(result);
+        changed = false;
+    }
+
+    /**
+     * @return The total revenue of each movie with sales, highest first, as
+     *         of the last flush.
+     */
+    List<MovieRevenue> ranking() {
+        return ranking;
+    }
+}
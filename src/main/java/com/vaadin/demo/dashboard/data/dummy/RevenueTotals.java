@@ -0,0 +1,34 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The exact running revenue total in cents. The total is updated as sales
+ * are added, so reading it never requires a scan over the transactions. The
+ * striped adder keeps concurrent updates from contending on a single counter.
+ * Totals per movie are kept by {@link MovieRevenueSeries}.
+ */
+final class RevenueTotals {
+
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Creates the total of the daily revenue of all the transactions
+     * currently in the store.
+     */
+    RevenueTotals(final DailyRevenue dailyRevenue) {
+        for (DailyRevenue.Day day : dailyRevenue.getDays().values()) {
+            for (int movie = 0; movie < day.cents.length; movie++) {
+                total.add(day.cents[movie]);
+            }
+        }
+    }
+
+    void add(final long cents) {
+        total.add(cents);
+    }
+
+    long totalCents() {
+        return total.sum();
+    }
+}
@@ -0,0 +1,70 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.demo.dashboard.data.SalesMetric;
+
+/**
+ * The recent history of each {@link SalesMetric} of a data set, updated as
+ * sales are added. All sessions read the same series, so a sparkline costs a
+ * copy of a few dozen values instead of a scan of the transactions.
+ */
+final class SalesMetrics {
+
+    private final Map<SalesMetric, MetricSeries> series = new EnumMap<SalesMetric, MetricSeries>(
+            SalesMetric.class);
+
+    private SalesMetrics() {
+        for (SalesMetric metric : SalesMetric.values()) {
+            boolean cents = metric == SalesMetric.REVENUE_PER_DAY
+                    || metric == SalesMetric.AVERAGE_PRICE_PER_DAY;
+            series.put(metric, new MetricSeries(metric.getInterval()
+                    .toMillis(1), metric == SalesMetric.AVERAGE_PRICE_PER_DAY,
+                    cents ? 100 : 1));
+        }
+    }
+
+    /**
+     * @return The metrics of the recent transactions of the store, the rows
+     *         that still fit in the longest series.
+     */
+    static SalesMetrics of(final TransactionStore store) {
+        SalesMetrics metrics = new SalesMetrics();
+        int size = store.size();
+        if (size > 0) {
+            long latest = store.time(size - 1);
+            int from = store.lowerBound(latest - MetricSeries.CAPACITY
+                    * TimeUnit.DAYS.toMillis(1));
+            for (int row = from; row < size; row++) {
+                metrics.add(store, row);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Adds the given row of the store.
+     */
+    void add(final TransactionStore store, final int row) {
+        long time = store.time(row);
+        long cents = store.priceCents(row);
+        series.get(SalesMetric.SALES_PER_HOUR).add(time, 1);
+        series.get(SalesMetric.SEATS_PER_HOUR).add(time, store.seats(row));
+        series.get(SalesMetric.REVENUE_PER_DAY).add(time, cents);
+        series.get(SalesMetric.AVERAGE_PRICE_PER_DAY).add(time, cents);
+    }
+
+    /**
+     * @param points
+     *            Between 1 and {@value MetricSeries#CAPACITY}.
+     */
+    double[] history(final SalesMetric metric, final int points) {
+        if (points < 1 || points > MetricSeries.CAPACITY) {
+            throw new IllegalArgumentException("Invalid number of points "
+                    + points);
+        }
+        return series.get(metric).history(points);
+    }
+}
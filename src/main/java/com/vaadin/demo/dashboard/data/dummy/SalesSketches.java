@@ -0,0 +1,148 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Approximate statistics of the sales of a data set, kept in constant memory
+ * and updated as sales are added: the number of distinct countries and
+ * cities each movie has sold tickets in (HyperLogLog) and the distribution of
+ * ticket prices and seat counts (t-digest). Reading them never scans the
+ * transactions.
+ * <p>
+ * The sketches are built with a {@link PartitionedScan} over the store and
+ * then updated by the single writer of the data set, which calls
+ * {@link #flush()} after each batch of sales to publish the percentiles.
+ */
+final class SalesSketches {
+
+    private static final class Markets {
+        final HyperLogLog countries = new HyperLogLog();
+        final HyperLogLog cities = new HyperLogLog();
+
+        void addAll(final Markets other) {
+            countries.addAll(other.countries);
+            cities.addAll(other.cities);
+        }
+    }
+
+    /* The sketches of a range of rows, with markets by movie code */
+    private static final class Partial {
+        final Markets[] markets;
+        final TDigest prices = new TDigest();
+        final TDigest seats = new TDigest();
+
+        Partial(final int movieCount) {
+            markets = new Markets[movieCount];
+        }
+    }
+
+    private final ConcurrentMap<Long, Markets> markets = new ConcurrentHashMap<Long, Markets>();
+    private final TDigest prices;
+    private final TDigest seats;
+
+    private SalesSketches(final TDigest prices, final TDigest seats) {
+        this.prices = prices;
+        this.seats = seats;
+    }
+
+    /**
+     * @return Sketches of all the transactions currently in the store.
+     */
+    static SalesSketches of(final TransactionStore store) {
+        final int movieCount = store.movieCount();
+        Partial all = new PartitionedScan<Partial>() {
+            @Override
+            Partial scan(final int from, final int to) {
+                Partial partial = new Partial(movieCount);
+                for (int row = from; row < to; row++) {
+                    int movie = store.movieCode(row);
+                    Markets markets = partial.markets[movie];
+                    if (markets == null) {
+                        markets = new Markets();
+                        partial.markets[movie] = markets;
+                    }
+                    markets.countries.add(store.countryCode(row));
+                    markets.cities.add(store.cityCode(row));
+                    partial.prices.add(store.priceCents(row));
+                    partial.seats.add(store.seats(row));
+                }
+                return partial;
+            }
+
+            @Override
+            Partial merge(final Partial earlier, final Partial later) {
+                for (int i = 0; i < movieCount; i++) {
+                    if (earlier.markets[i] == null) {
+                        earlier.markets[i] = later.markets[i];
+                    } else if (later.markets[i] != null) {
+                        earlier.markets[i].addAll(later.markets[i]);
+                    }
+                }
+                earlier.prices.addAll(later.prices);
+                earlier.seats.addAll(later.seats);
+                return earlier;
+            }
+        }.invoke(0, store.size());
+
+        SalesSketches sketches = new SalesSketches(all.prices, all.seats);
+        for (int i = 0; i < movieCount; i++) {
+            if (all.markets[i] != null) {
+                sketches.markets.put(store.movieIdOf(i), all.markets[i]);
+            }
+        }
+        sketches.flush();
+        return sketches;
+    }
+
+    /**
+     * Adds the given row of the store. The percentiles include it after the
+     * next flush.
+     */
+    void add(final TransactionStore store, final int row) {
+        long movieId = store.movieId(row);
+        Markets movieMarkets = markets.get(movieId);
+        if (movieMarkets == null) {
+            movieMarkets = new Markets();
+            markets.put(movieId, movieMarkets);
+        }
+        movieMarkets.countries.add(store.countryCode(row));
+        movieMarkets.cities.add(store.cityCode(row));
+        prices.add(store.priceCents(row));
+        seats.add(store.seats(row));
+    }
+
+    /**
+     * Publishes the sales added since the previous flush to readers.
+     */
+    void flush() {
+        prices.flush();
+        seats.flush();
+    }
+
+    long distinctCountries(final long movieId) {
+        Markets movieMarkets = markets.get(movieId);
+        return movieMarkets == null ? 0 : movieMarkets.countries.estimate();
+    }
+
+    long distinctCities(final long movieId) {
+        Markets movieMarkets = markets.get(movieId);
+        return movieMarkets == null ? 0 : movieMarkets.cities.estimate();
+    }
+
+    /**
+     * @return The ticket price at the given quantile or NaN if there are no
+     *         sales.
+     */
+    double pricePercentile(final double quantile) {
+        return prices.quantile(quantile) / 100;
+    }
+
+    /**
+     * @return The seat count at the given quantile or NaN if there are no
+     *         sales.
+     */
+    double seatsPercentile(final double quantile) {
+        return seats.quantile(quantile);
+    }
+}
@@ -0,0 +1,125 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.vaadin.demo.dashboard.data.SymbolTable;
+
+/**
+ * Maps repeating string values to dense integer codes so that a column of
+ * strings can be stored as an {@code int[]}. Values are only added by a single
+ * writer at a time but can be looked up concurrently.
+ * <p>
+ * Values are kept as their {@link SymbolTable} instances, so dictionaries of
+ * different stores share them.
+ */
+final class StringDictionary {
+
+    private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<String, Integer>();
+    private volatile String[] values = new String[16];
+    private int size;
+
+    /**
+     * @return The code of the given value, adding it to the dictionary if it
+     *         wasn't there already.
+     */
+    synchronized int encode(final String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            String symbol = SymbolTable.intern(value);
+            code = size;
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size << 1);
+            }
+            current[size++] = symbol;
+            values = current;
+            codes.put(symbol, code);
+        }
+        return code;
+    }
+
+    /**
+     * @return The code of the given value or -1 if the value is unknown.
+     */
+    int codeOf(final String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    String decode(final int code) {
+        return values[code];
+    }
+
+    int size() {
+        return codes.size();
+    }
+
+    /**
+     * @return The rank of each code when the values are sorted alphabetically.
+     */
+    int[] ranks() {
+        int count = size();
+        final String[] current = values;
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer o1, final Integer o2) {
+                return current[o1].compareTo(current[o2]);
+            }
+        });
+        int[] ranks = new int[count];
+        for (int i = 0; i < count; i++) {
+            ranks[order[i]] = i;
+        }
+        return ranks;
+    }
+
+    /**
+     * @return A flag for each code telling whether its value contains the
+     *         given text, ignoring case.
+     */
+    boolean[] matching(final String text) {
+        boolean[] result = new boolean[size()];
+        String[] current = values;
+        String lowerCaseText = text.toLowerCase();
+        for (int i = 0; i < result.length; i++) {
+            result[i] = current[i].toLowerCase().contains(lowerCaseText);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the values in code order. Values added meanwhile wait, so only
+     * whole entries are written.
+     */
+    synchronized void writeTo(final DataOutput out) throws IOException {
+        int count = size();
+        String[] current = values;
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeUTF(current[i]);
+        }
+    }
+
+    /**
+     * Reads a dictionary written by {@link #writeTo(DataOutput)}, keeping the
+     * codes of the values.
+     */
+    static StringDictionary readFrom(final DataInput in) throws IOException {
+        StringDictionary dictionary = new StringDictionary();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            dictionary.encode(in.readUTF());
+        }
+        return dictionary;
+    }
+}
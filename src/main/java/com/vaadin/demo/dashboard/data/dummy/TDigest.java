@@ -0,0 +1,190 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.Arrays;
+
+/**
+ * Estimates quantiles of the values added to it in constant memory: a
+ * merging t-digest. Values are summarized by a few hundred centroids, which
+ * are kept small near the tails so extreme quantiles like p95 and p99 stay
+ * accurate.
+ * <p>
+ * Values are buffered by a single writer and merged into the centroids when
+ * the buffer fills up or on {@link #flush()}. Each merge publishes a new
+ * immutable set of centroids, so readers estimate concurrently without
+ * locking and see the values up to the latest merge.
+ */
+final class TDigest {
+
+    private static final double COMPRESSION = 100;
+    private static final int BUFFER_SIZE = 512;
+
+    private static final class Centroids {
+        final double[] means;
+        final double[] weights;
+        final int size;
+        final double total;
+        final double min;
+        final double max;
+
+        Centroids(final double[] means, final double[] weights,
+                final int size, final double total, final double min,
+                final double max) {
+            this.means = means;
+            this.weights = weights;
+            this.size = size;
+            this.total = total;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private volatile Centroids centroids = new Centroids(new double[0],
+            new double[0], 0, 0, Double.NaN, Double.NaN);
+    private final double[] buffer = new double[BUFFER_SIZE];
+    private int buffered;
+
+    void add(final double value) {
+        buffer[buffered++] = value;
+        if (buffered == BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Adds all the values of another digest.
+     */
+    void addAll(final TDigest other) {
+        flush();
+        other.flush();
+        Centroids current = centroids;
+        Centroids added = other.centroids;
+        if (added.size == 0) {
+            return;
+        }
+        double min = current.size == 0 ? added.min : Math.min(current.min,
+                added.min);
+        double max = current.size == 0 ? added.max : Math.max(current.max,
+                added.max);
+        centroids = merge(current.means, current.weights, current.size,
+                added.means, added.weights, added.size, min, max);
+    }
+
+    /**
+     * Merges the buffered values into the centroids seen by readers.
+     */
+    void flush() {
+        if (buffered == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, buffered);
+        Centroids current = centroids;
+        double min = current.size == 0 ? buffer[0] : Math.min(current.min,
+                buffer[0]);
+        double max = current.size == 0 ? buffer[buffered - 1] : Math.max(
+                current.max, buffer[buffered - 1]);
+        centroids = merge(current.means, current.weights, current.size,
+                buffer, null, buffered, min, max);
+        buffered = 0;
+    }
+
+    /**
+     * Merges two lists of centroids sorted by mean into a new list, combining
+     * neighbours as long as they stay under the size limit of their
+     * quantile.
+     *
+     * @param weights2
+     *            null if all the second centroids have a weight of one.
+     */
+    private static Centroids merge(final double[] means1,
+            final double[] weights1, final int size1, final double[] means2,
+            final double[] weights2, final int size2, final double min,
+            final double max) {
+        double total = 0;
+        for (int i = 0; i < size1; i++) {
+            total += weights1[i];
+        }
+        for (int i = 0; i < size2; i++) {
+            total += weights2 == null ? 1 : weights2[i];
+        }
+
+        int capacity = Math.min(size1 + size2, (int) (2 * COMPRESSION) + 10);
+        double[] means = new double[capacity];
+        double[] weights = new double[capacity];
+        int size = 0;
+        double before = 0;
+        int i1 = 0;
+        int i2 = 0;
+        while (i1 < size1 || i2 < size2) {
+            double mean;
+            double weight;
+            if (i2 >= size2 || i1 < size1 && means1[i1] <= means2[i2]) {
+                mean = means1[i1];
+                weight = weights1[i1];
+                i1++;
+            } else {
+                mean = means2[i2];
+                weight = weights2 == null ? 1 : weights2[i2];
+                i2++;
+            }
+            if (size > 0) {
+                double merged = weights[size - 1] + weight;
+                double q = (before + merged / 2) / total;
+                if (merged <= 4 * total * q * (1 - q) / COMPRESSION) {
+                    means[size - 1] += (mean - means[size - 1]) * weight
+                            / merged;
+                    weights[size - 1] = merged;
+                    continue;
+                }
+                before += weights[size - 1];
+            }
+            if (size == means.length) {
+                means = Arrays.copyOf(means, size << 1);
+                weights = Arrays.copyOf(weights, size << 1);
+            }
+            means[size] = mean;
+            weights[size] = weight;
+            size++;
+        }
+        return new Centroids(means, weights, size, total, min, max);
+    }
+
+    /**
+     * @return The number of values merged so far.
+     */
+    long count() {
+        return Math.round(centroids.total);
+    }
+
+    /**
+     * @param q
+     *            The quantile, between 0 and 1.
+     * @return The estimated value at the given quantile or NaN if no values
+     *         have been merged yet.
+     */
+    double quantile(final double q) {
+        Centroids c = centroids;
+        if (c.size == 0) {
+            return Double.NaN;
+        }
+        if (c.size == 1) {
+            return c.means[0];
+        }
+        double index = q * c.total;
+        // Values are spread evenly around each centroid mean
+        double center = c.weights[0] / 2;
+        if (index < center) {
+            return c.min + (c.means[0] - c.min) * index / center;
+        }
+        for (int i = 0; i < c.size - 1; i++) {
+            double distance = (c.weights[i] + c.weights[i + 1]) / 2;
+            if (index < center + distance) {
+                return c.means[i] + (c.means[i + 1] - c.means[i])
+                        * (index - center) / distance;
+            }
+            center += distance;
+        }
+        double last = c.weights[c.size - 1] / 2;
+        return Math.min(c.max, c.means[c.size - 1]
+                + (c.max - c.means[c.size - 1]) * (index - center) / last);
+    }
+}
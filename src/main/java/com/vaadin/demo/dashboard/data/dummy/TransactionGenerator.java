@@ -0,0 +1,452 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Multimap;
+import com.vaadin.demo.dashboard.domain.Movie;
+
+/**
+ * Generates a synthetic ticket sale history of a requested size.
+ * <p>
+ * Movie popularity follows a Zipf distribution, sales are spread over the
+ * opening hours with an evening peak and weekends sell more than weekdays.
+ * Every movie only sells tickets between its (random) premiere and the given
+ * reference time. The work is split into chunks generated in parallel, each
+ * with its own {@link SplittableRandom} seeded from a root generator, so a
+ * fixed seed and reference time always produce the same data regardless of
+ * the parallelism.
+ * <p>
+ * The chunks write their rows, already encoded for the store, straight into
+ * the columns of the store: a first pass only counts the rows of each chunk
+ * per day, which tells each chunk where its rows go in the second pass, and
+ * then the days are sorted by time in parallel.
+ * <p>
+ * The defaults can be overridden with the system properties
+ * {@value #TRANSACTIONS_PROPERTY}, {@value #SEED_PROPERTY} and
+ * {@value #PARALLELISM_PROPERTY}.
+ */
+final class TransactionGenerator {
+
+    static final String TRANSACTIONS_PROPERTY = "dashboard.transactions";
+    static final String SEED_PROPERTY = "dashboard.seed";
+    static final String PARALLELISM_PROPERTY = "dashboard.parallelism";
+
+    /* Default number of transactions generated per movie */
+    private static final int DEFAULT_TRANSACTIONS_PER_MOVIE = 40;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final double ZIPF_EXPONENT = 1.07;
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    /* Relative sales by hour of day, theaters are open from 11 to 22 */
+    private static final double[] HOURLY_WEIGHTS = { 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 2, 4, 4, 3, 3, 4, 6, 9, 10, 8, 5, 0, 0 };
+
+    /* Relative sales by day of week, indexed by Calendar.DAY_OF_WEEK */
+    private static final double[] WEEKDAY_WEIGHTS = { 0, 1.6, 0.8, 0.7, 0.8,
+            1.0, 1.5, 1.8 };
+
+    private final long seed;
+    private final int transactionCount;
+    private final int parallelism;
+
+    TransactionGenerator(final long seed, final int transactionCount,
+            final int parallelism) {
+        if (transactionCount < 0 || parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid transaction count or parallelism");
+        }
+        this.seed = seed;
+        this.transactionCount = transactionCount;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return A generator configured by system properties, defaulting to a
+     *         random seed and a few dozen transactions per movie.
+     */
+    static TransactionGenerator fromSystemProperties(final int movieCount) {
+        long seed = Long.getLong(SEED_PROPERTY, System.nanoTime());
+        int transactionCount = Integer.getInteger(TRANSACTIONS_PROPERTY,
+                movieCount * DEFAULT_TRANSACTIONS_PER_MOVIE);
+        int parallelism = Integer.getInteger(PARALLELISM_PROPERTY, Runtime
+                .getRuntime().availableProcessors());
+        return new TransactionGenerator(seed, transactionCount, parallelism);
+    }
+
+    /**
+     * @param end
+     *            The reference time of the model: all the generated sales are
+     *            before it, so the same seed and end time always generate the
+     *            same data.
+     */
+    TransactionStore generate(final Multimap<String, String> countryToCities,
+            final Collection<Movie> movies, final List<String> theaters,
+            final List<String> rooms, final long end) {
+        TransactionStore.Builder builder = new TransactionStore.Builder();
+        final Model model = new Model(new SplittableRandom(seed),
+                countryToCities, movies, theaters, rooms, end, builder);
+        if (model.movies.length == 0 || model.countries.length == 0) {
+            return builder.build(new TransactionStore.Columns(0));
+        }
+
+        // Each chunk gets a seed of its own up front so the chunks don't
+        // depend on the order they're run in
+        SplittableRandom root = new SplittableRandom(seed ^ 0x5DEECE66DL);
+        final int chunkCount = (int) (((long) transactionCount + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        final long[] chunkSeeds = new long[chunkCount];
+        for (int i = 0; i < chunkSeeds.length; i++) {
+            chunkSeeds[i] = root.nextLong();
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // First pass: count the rows of each chunk by day. Only the counts
+            // are kept, so no more than the final columns is ever in memory.
+            final int[][] dayCounts = new int[chunkCount][];
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+            for (int i = 0; i < chunkCount; i++) {
+                final int chunk = i;
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        final int[] counts = new int[model.days.length];
+                        generateChunk(model, chunk, chunkSeeds[chunk],
+                                new RowSink() {
+                                    @Override
+                                    public void add(final int day,
+                                            final long time, final int movie,
+                                            final int country, final int city,
+                                            final int theater, final int room,
+                                            final int seats, final int cents) {
+                                        counts[day]++;
+                                    }
+                                });
+                        dayCounts[chunk] = counts;
+                        return null;
+                    }
+                });
+            }
+            invokeAll(pool, tasks);
+
+            // Rows are grouped by day, and within a day by chunk, so every
+            // chunk knows where to put each of its rows
+            final int[] dayStarts = new int[model.days.length + 1];
+            final int[][] positions = new int[chunkCount][model.days.length];
+            int position = 0;
+            for (int day = 0; day < model.days.length; day++) {
+                dayStarts[day] = position;
+                for (int chunk = 0; chunk < chunkCount; chunk++) {
+                    positions[chunk][day] = position;
+                    position += dayCounts[chunk][day];
+                }
+            }
+            dayStarts[model.days.length] = position;
+
+            // Second pass: generate the same rows again straight into the
+            // columns
+            final TransactionStore.Columns columns = new TransactionStore.Columns(
+                    transactionCount);
+            tasks.clear();
+            for (int i = 0; i < chunkCount; i++) {
+                final int chunk = i;
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        final int[] next = positions[chunk];
+                        generateChunk(model, chunk, chunkSeeds[chunk],
+                                new RowSink() {
+                                    @Override
+                                    public void add(final int day,
+                                            final long time, final int movie,
+                                            final int country, final int city,
+                                            final int theater, final int room,
+                                            final int seats, final int cents) {
+                                        int row = next[day]++;
+                                        columns.times[row] = time;
+                                        columns.movies[row] = movie;
+                                        columns.countries[row] = country;
+                                        columns.cities[row] = city;
+                                        columns.theaters[row] = theater;
+                                        columns.rooms[row] = room;
+                                        columns.seats[row] = seats;
+                                        columns.prices[row] = cents;
+                                    }
+                                });
+                        return null;
+                    }
+                });
+            }
+            invokeAll(pool, tasks);
+
+            // Finally every day is sorted by time on its own
+            tasks.clear();
+            for (int i = 0; i < model.days.length; i++) {
+                final int day = i;
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        sortDay(columns, dayStarts[day], dayStarts[day + 1],
+                                model.days[day]);
+                        return null;
+                    }
+                });
+            }
+            invokeAll(pool, tasks);
+            return builder.build(columns);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void invokeAll(final ForkJoinPool pool,
+            final List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                    "Interrupted while generating transactions", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Generating transactions failed",
+                    e.getCause());
+        }
+    }
+
+    /**
+     * Generates the rows of a chunk, always the same ones for the same chunk
+     * seed.
+     */
+    private void generateChunk(final Model model, final int chunk,
+            final long chunkSeed, final RowSink sink) {
+        SplittableRandom random = new SplittableRandom(chunkSeed);
+        int size = Math.min(CHUNK_SIZE, transactionCount - chunk * CHUNK_SIZE);
+        for (int i = 0; i < size; i++) {
+            int movie = Model.sample(model.popularity, random);
+            int day = model.firstDays[movie]
+                    + Model.sample(model.movieDays[movie], random);
+            long time;
+            if (day == model.days.length - 1) {
+                // The sales of the last day end at the reference time
+                int hour = Model.sample(model.lastDayHours, random);
+                time = model.days[day] + hour * HOUR
+                        + random.nextLong(model.lastDayHourLengths[hour]);
+            } else {
+                int hour = Model.sample(model.hours, random);
+                time = model.days[day] + hour * HOUR + random.nextLong(HOUR);
+            }
+            int country = random.nextInt(model.countries.length);
+            int city = random.nextInt(model.cityCodes[country].length);
+            int theater = random.nextInt(model.theaterCodes.length);
+            int room = random.nextInt(model.roomCodes.length);
+            int seats = 1 + random.nextInt(3);
+            // Price (approx. USD)
+            double price = seats * (2 + random.nextDouble() * 8);
+            sink.add(day, time, model.movieCodes[movie],
+                    model.countryCodes[country], model.cityCodes[country][city],
+                    model.theaterCodes[theater], model.roomCodes[room], seats,
+                    TransactionStore.toCents(price));
+        }
+    }
+
+    /**
+     * Sorts the rows of a day by time. The time within the day and the
+     * current position are packed into a long so a primitive sort can be
+     * used, and rows with the same time keep their order.
+     */
+    private static void sortDay(final TransactionStore.Columns columns,
+            final int from, final int to, final long dayStart) {
+        int count = to - from;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = (columns.times[from + i] - dayStart) << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = from + (int) keys[i];
+        }
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = columns.times[order[i]];
+        }
+        System.arraycopy(times, 0, columns.times, from, count);
+        for (int[] column : Arrays.asList(columns.movies, columns.countries,
+                columns.cities, columns.theaters, columns.rooms,
+                columns.seats, columns.prices)) {
+            int[] values = new int[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = column[order[i]];
+            }
+            System.arraycopy(values, 0, column, from, count);
+        }
+    }
+
+    /**
+     * Receives the generated rows of a chunk.
+     */
+    private interface RowSink {
+        void add(int day, long time, int movie, int country, int city,
+                int theater, int room, int seats, int cents);
+    }
+
+    /**
+     * The immutable inputs of the generation shared by all chunks, with the
+     * strings already encoded for the store.
+     */
+    private static final class Model {
+        private final Movie[] movies;
+        private final String[] countries;
+        private final int[] movieCodes;
+        private final int[] countryCodes;
+        private final int[][] cityCodes;
+        private final int[] theaterCodes;
+        private final int[] roomCodes;
+
+        /* Cumulative Zipf weights of the movies */
+        private final double[] popularity;
+        /* Local midnights of every day any movie sells tickets on */
+        private final long[] days;
+        /* Cumulative day weights per movie, from its premiere on */
+        private final double[][] movieDays;
+        private final int[] firstDays;
+        private final double[] hours;
+        /* The hours of the last day, up to the reference time */
+        private final double[] lastDayHours;
+        private final long[] lastDayHourLengths;
+
+        Model(final SplittableRandom random,
+                final Multimap<String, String> countryToCities,
+                final Collection<Movie> movies, final List<String> theaters,
+                final List<String> rooms, final long end,
+                final TransactionStore.Builder builder) {
+            this.movies = movies.toArray(new Movie[movies.size()]);
+            movieCodes = new int[this.movies.length];
+            for (int i = 0; i < movieCodes.length; i++) {
+                movieCodes[i] = builder.encodeMovie(this.movies[i].getId(),
+                        this.movies[i].getTitle());
+            }
+            countries = countryToCities.keySet().toArray(new String[0]);
+            countryCodes = new int[countries.length];
+            cityCodes = new int[countries.length][];
+            for (int i = 0; i < countries.length; i++) {
+                countryCodes[i] = builder.getCountryDictionary().encode(
+                        countries[i]);
+                Collection<String> cities = countryToCities.get(countries[i]);
+                cityCodes[i] = new int[cities.size()];
+                int j = 0;
+                for (String city : cities) {
+                    cityCodes[i][j++] = builder.getCityDictionary()
+                            .encode(city);
+                }
+            }
+            theaterCodes = new int[theaters.size()];
+            for (int i = 0; i < theaterCodes.length; i++) {
+                theaterCodes[i] = builder.getTheaterDictionary().encode(
+                        theaters.get(i));
+            }
+            roomCodes = new int[rooms.size()];
+            for (int i = 0; i < roomCodes.length; i++) {
+                roomCodes[i] = builder.getRoomDictionary().encode(rooms.get(i));
+            }
+
+            // Popularity ranks are assigned to movies in random order
+            int[] ranks = new int[this.movies.length];
+            for (int i = 0; i < ranks.length; i++) {
+                ranks[i] = i;
+            }
+            for (int i = ranks.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = ranks[i];
+                ranks[i] = ranks[j];
+                ranks[j] = tmp;
+            }
+            popularity = new double[this.movies.length];
+            double sum = 0;
+            for (int i = 0; i < popularity.length; i++) {
+                sum += 1 / Math.pow(ranks[i] + 1, ZIPF_EXPONENT);
+                popularity[i] = sum;
+            }
+
+            hours = new double[HOURLY_WEIGHTS.length];
+            double hourSum = 0;
+            for (int i = 0; i < hours.length; i++) {
+                hourSum += HOURLY_WEIGHTS[i];
+                hours[i] = hourSum;
+            }
+
+            // Every movie premiered 30-180 days before the day of the
+            // reference time and plays until the reference time
+            Calendar cal = Calendar.getInstance();
+            int maxHistory = 180;
+            cal.setTimeInMillis(MovieRevenueSeries.startOfDay(end));
+            long lastDay = cal.getTimeInMillis();
+            cal.add(Calendar.DAY_OF_YEAR, -maxHistory);
+            days = new long[maxHistory + 1];
+            double[] dayWeights = new double[days.length];
+            for (int i = 0; i < days.length; i++) {
+                days[i] = cal.getTimeInMillis();
+                dayWeights[i] = WEEKDAY_WEIGHTS[cal.get(Calendar.DAY_OF_WEEK)];
+                cal.add(Calendar.DAY_OF_YEAR, 1);
+            }
+
+            // Only the part of the last day before the reference time sells,
+            // and its weight is cut accordingly
+            lastDayHours = new double[hours.length];
+            lastDayHourLengths = new long[hours.length];
+            double lastDaySum = 0;
+            for (int i = 0; i < hours.length; i++) {
+                long length = Math.max(0, Math.min(HOUR, end - lastDay - i
+                        * HOUR));
+                lastDayHourLengths[i] = Math.max(1, length);
+                lastDaySum += HOURLY_WEIGHTS[i] * length / HOUR;
+                lastDayHours[i] = lastDaySum;
+            }
+            dayWeights[maxHistory] *= lastDaySum / hourSum;
+
+            movieDays = new double[this.movies.length][];
+            firstDays = new int[this.movies.length];
+            for (int m = 0; m < this.movies.length; m++) {
+                firstDays[m] = maxHistory - (30 + random.nextInt(151));
+                movieDays[m] = new double[days.length - firstDays[m]];
+                double daySum = 0;
+                for (int i = 0; i < movieDays[m].length; i++) {
+                    daySum += dayWeights[firstDays[m] + i];
+                    movieDays[m][i] = daySum;
+                }
+            }
+        }
+
+
+        /**
+         * @return The index of the first cumulative weight above a uniformly
+         *         distributed random value.
+         */
+        static int sample(final double[] cumulative,
+                final SplittableRandom random) {
+            double value = random.nextDouble() * cumulative[cumulative.length - 1];
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.vaadin.demo.dashboard.data.TransactionField;
+import com.vaadin.demo.dashboard.data.TransactionPage;
+import com.vaadin.demo.dashboard.data.TransactionQuery;
+import com.vaadin.demo.dashboard.data.TransactionSort;
+import com.vaadin.demo.dashboard.domain.Transaction;
+
+/**
+ * Runs paged {@link TransactionQuery} queries against a
+ * {@link TransactionStore}.
+ * <p>
+ * Filtering compares the query text against the dictionaries once and then
+ * only scans integer codes. Sorting maps every key to an integer rank (row
+ * number for time, dictionary rank for text, the value itself for numbers)
+ * and runs one primitive sort per key, least significant key first. Only the
+ * transactions of the requested page are materialized. The filtered and
+ * sorted row order is cached so that following pages of the same query, pinned
+ * to the same snapshot, are read straight from it.
+ * <p>
+ * Row numbers only identify a transaction within one data set, so the ids
+ * of the transactions and the snapshots handed out carry the generation of
+ * the data set in their high 32 bits. A snapshot of an earlier data set is
+ * not honored after a refresh replaced it.
+ */
+final class TransactionQueryEngine {
+
+    /* Upper limit for the total number of cached row numbers */
+    private static final long MAX_CACHED_ROWS = 16 * 1024 * 1024;
+
+    private final TransactionStore store;
+    private final int generation;
+    private final Cache<List<Object>, int[]> orders = CacheBuilder
+            .newBuilder().maximumWeight(MAX_CACHED_ROWS)
+            .weigher(new Weigher<List<Object>, int[]>() {
+                @Override
+                public int weigh(final List<Object> key, final int[] value) {
+                    return value.length + 1;
+                }
+            }).build();
+
+    TransactionQueryEngine(final TransactionStore store, final int generation) {
+        this.store = store;
+        this.generation = generation;
+    }
+
+    TransactionPage execute(final TransactionQuery query) {
+        // A snapshot is the number of rows there were, rows are never removed
+        Long snapshot = query.getSnapshot();
+        int size = snapshot == null || snapshot >>> 32 != generation ? store
+                .size() : (int) Math.min(store.size(), snapshot & 0xFFFFFFFFL);
+        int from = query.getStartDate() == null ? 0 : store.lowerBound(query
+                .getStartDate().getTime());
+        int to = query.getEndDate() == null ? size : Math.min(size,
+                store.lowerBound(query.getEndDate().getTime() + 1));
+        to = Math.max(from, to);
+
+        String filterText = query.getFilterText() == null ? "" : query
+                .getFilterText().trim().toLowerCase();
+        List<TransactionSort> sortOrder = significantSortOrder(query
+                .getSortOrder());
+
+        List<Transaction> transactions = new ArrayList<Transaction>();
+        int totalCount;
+        if (filterText.isEmpty()
+                && (sortOrder.isEmpty() || sortOrder.get(0).getField() == TransactionField.TIME)) {
+            // Rows are already in time order, no need to touch them
+            boolean descending = !sortOrder.isEmpty()
+                    && !sortOrder.get(0).isAscending();
+            totalCount = to - from;
+            int end = (int) Math.min(totalCount, (long) query.getOffset()
+                    + query.getLimit());
+            for (int i = query.getOffset(); i < end; i++) {
+                transactions.add(toTransaction(descending ? to - 1 - i
+                        : from + i));
+            }
+        } else {
+            int[] rows = order(from, to, filterText,
+                    query.getFilterFields(), sortOrder);
+            totalCount = rows.length;
+            int end = (int) Math.min(totalCount, (long) query.getOffset()
+                    + query.getLimit());
+            for (int i = query.getOffset(); i < end; i++) {
+                transactions.add(toTransaction(rows[i]));
+            }
+        }
+        return new TransactionPage(transactions, totalCount,
+                (long) generation << 32 | size);
+    }
+
+    private Transaction toTransaction(final int row) {
+        Transaction transaction = store.toTransaction(row);
+        transaction.setId((long) generation << 32 | row);
+        return transaction;
+    }
+
+    /**
+     * @return The sort keys up to and including the first time key. Times are
+     *         unique row positions, so any keys after it have no effect.
+     */
+    private static List<TransactionSort> significantSortOrder(
+            final List<TransactionSort> sortOrder) {
+        List<TransactionSort> result = new ArrayList<TransactionSort>();
+        for (TransactionSort sort : sortOrder) {
+            result.add(sort);
+            if (sort.getField() == TransactionField.TIME) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The filtered and sorted rows in the given range. Published rows
+     *         never change, so the range and the generation identify them;
+     *         queries pinned to a snapshot keep hitting the cache as sales
+     *         are added.
+     */
+    private int[] order(final int from, final int to,
+            final String filterText, final Set<TransactionField> filterFields,
+            final List<TransactionSort> sortOrder) {
+        List<Object> key = Arrays.<Object> asList(generation, from, to,
+                filterText, filterFields, sortOrder);
+        int[] rows = orders.getIfPresent(key);
+        if (rows == null) {
+            rows = filter(from, to, filterText, filterFields);
+            for (int i = sortOrder.size() - 1; i >= 0; i--) {
+                rows = sort(rows, sortOrder.get(i));
+            }
+            orders.put(key, rows);
+        }
+        return rows;
+    }
+
+    private int[] filter(final int from, final int to, final String text,
+            final Set<TransactionField> fields) {
+        if (text.isEmpty()) {
+            int[] rows = new int[to - from];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = from + i;
+            }
+            return rows;
+        }
+
+        final boolean[] countries = fields.contains(TransactionField.COUNTRY) ? store
+                .getCountryDictionary().matching(text) : new boolean[0];
+        final boolean[] cities = fields.contains(TransactionField.CITY) ? store
+                .getCityDictionary().matching(text) : new boolean[0];
+        final boolean[] theaters = fields.contains(TransactionField.THEATER) ? store
+                .getTheaterDictionary().matching(text) : new boolean[0];
+        final boolean[] rooms = fields.contains(TransactionField.ROOM) ? store
+                .getRoomDictionary().matching(text) : new boolean[0];
+        final boolean[] titles = new boolean[fields
+                .contains(TransactionField.TITLE) ? store.movieCount() : 0];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = store.movieTitleOf(i).toLowerCase().contains(text);
+        }
+
+        // Partitions are scanned in parallel and their matches concatenated
+        return new PartitionedScan<int[]>() {
+            @Override
+            int[] scan(final int from, final int to) {
+                int[] rows = new int[to - from];
+                int count = 0;
+                for (int row = from; row < to; row++) {
+                    if (matches(countries, store.countryCode(row))
+                            || matches(cities, store.cityCode(row))
+                            || matches(theaters, store.theaterCode(row))
+                            || matches(rooms, store.roomCode(row))
+                            || matches(titles, store.movieCode(row))) {
+                        rows[count++] = row;
+                    }
+                }
+                return Arrays.copyOf(rows, count);
+            }
+
+            @Override
+            int[] merge(final int[] earlier, final int[] later) {
+                int[] rows = Arrays.copyOf(earlier, earlier.length
+                        + later.length);
+                System.arraycopy(later, 0, rows, earlier.length, later.length);
+                return rows;
+            }
+        }.invoke(from, to);
+    }
+
+    private static boolean matches(final boolean[] matchingCodes,
+            final int code) {
+        return code < matchingCodes.length && matchingCodes[code];
+    }
+
+    /**
+     * Stable sort of the rows by a single key. The rank of each row and its
+     * current position are packed into a long so a primitive sort can be
+     * used.
+     */
+    private int[] sort(final int[] rows, final TransactionSort sort) {
+        int[] ranks = null;
+        switch (sort.getField()) {
+        case COUNTRY:
+            ranks = store.getCountryDictionary().ranks();
+            break;
+        case CITY:
+            ranks = store.getCityDictionary().ranks();
+            break;
+        case THEATER:
+            ranks = store.getTheaterDictionary().ranks();
+            break;
+        case ROOM:
+            ranks = store.getRoomDictionary().ranks();
+            break;
+        case TITLE:
+            ranks = titleRanks();
+            break;
+        default:
+            break;
+        }
+
+        long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            int row = rows[i];
+            int rank;
+            switch (sort.getField()) {
+            case TIME:
+                rank = row;
+                break;
+            case SEATS:
+                rank = store.seats(row);
+                break;
+            case PRICE:
+                rank = store.priceCents(row);
+                break;
+            case COUNTRY:
+                rank = ranks[store.countryCode(row)];
+                break;
+            case CITY:
+                rank = ranks[store.cityCode(row)];
+                break;
+            case THEATER:
+                rank = ranks[store.theaterCode(row)];
+                break;
+            case ROOM:
+                rank = ranks[store.roomCode(row)];
+                break;
+            default:
+                rank = ranks[store.movieCode(row)];
+                break;
+            }
+            if (!sort.isAscending()) {
+                // Reverses the order of any int, unlike negating it
+                rank = ~rank;
+            }
+            keys[i] = (long) rank << 32 | i;
+        }
+        Arrays.parallelSort(keys);
+
+        int[] result = new int[rows.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = rows[(int) keys[i]];
+        }
+        return result;
+    }
+
+    private int[] titleRanks() {
+        StringDictionary titles = new StringDictionary();
+        int count = store.movieCount();
+        for (int i = 0; i < count; i++) {
+            titles.encode(store.movieTitleOf(i));
+        }
+        int[] titleRanks = titles.ranks();
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = titleRanks[titles.codeOf(store.movieTitleOf(i))];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,126 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+
+/**
+ * A versioned binary file holding the generated transactions, so that a
+ * restarted JVM can serve the same data right away instead of generating it
+ * again.
+ * <p>
+ * The file is mapped read-only and the transactions are read straight from
+ * the mapping, which lets the operating system page them in lazily and share
+ * them between JVMs on the same host. A new snapshot is written to a
+ * temporary file and then renamed over the old one, so a snapshot that is
+ * mapped by a running JVM is never modified.
+ */
+final class TransactionSnapshot {
+
+    /* "DTXS" */
+    private static final int MAGIC = 0x44545853;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    private final Date created;
+    private final TransactionStore transactions;
+
+    private TransactionSnapshot(final Date created,
+            final TransactionStore transactions) {
+        this.created = created;
+        this.transactions = transactions;
+    }
+
+    /**
+     * @return The time the snapshotted transactions were generated.
+     */
+    Date getCreated() {
+        return new Date(created.getTime());
+    }
+
+    TransactionStore getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * Maps the given snapshot file.
+     *
+     * @throws IOException
+     *             if the file can't be read, is of a different version or is
+     *             corrupt
+     */
+    static TransactionSnapshot read(final File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(
+                    ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()
+                    && channel.read(header, header.position()) >= 0) {
+                // Keep reading until the header is full or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE
+                    || header.getInt() != MAGIC) {
+                throw new IOException("Not a transaction snapshot: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version "
+                        + version + ": " + file);
+            }
+            Date created = new Date(header.getLong());
+            // The columns are mapped in parts, as the file may exceed the
+            // 2 GB limit of a single mapping
+            return new TransactionSnapshot(created,
+                    TransactionStore.readFrom(channel, HEADER_SIZE));
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Atomically replaces the given snapshot file with the given number of
+     * first rows of the given store.
+     */
+    static void write(final File file, final Date created,
+            final TransactionStore transactions, final int rows)
+            throws IOException {
+        File temp = File.createTempFile(file.getName(), ".tmp",
+                file.getAbsoluteFile().getParentFile());
+        try {
+            FileChannel channel = FileChannel.open(temp.toPath(),
+                    StandardOpenOption.WRITE);
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(
+                        ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION)
+                        .putLong(created.getTime());
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                transactions.writeTo(channel, rows);
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+}
@@ -0,0 +1,665 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.zip.CRC32;
+
+import com.google.common.collect.ImmutableList;
+import com.vaadin.demo.dashboard.data.SymbolTable;
+import com.vaadin.demo.dashboard.domain.Transaction;
+
+/**
+ * A columnar, time ordered store of ticket sales. Every transaction attribute
+ * is kept in its own primitive column: times as epoch milliseconds, prices as
+ * cents and the repeating string attributes as dictionary codes.
+ * {@link Transaction} instances are only created when rows are handed out
+ * through the backend API.
+ * <p>
+ * New rows are appended by a single writer at a time. A row becomes visible
+ * to readers only once the volatile size has been updated, so readers never
+ * need to lock.
+ * <p>
+ * The columns are segmented buffers, so a store can be read straight from a
+ * memory mapped snapshot file written by {@link #writeTo(WritableByteChannel, int)}.
+ * With the {@value #OFF_HEAP_PROPERTY} system property set to true, the
+ * columns are kept in direct buffers outside of the Java heap, leaving only
+ * the dictionaries and movie table on it.
+ */
+final class TransactionStore {
+
+    static final String OFF_HEAP_PROPERTY = "dashboard.offHeap";
+    private static final boolean OFF_HEAP = Boolean
+            .getBoolean(OFF_HEAP_PROPERTY);
+
+    /* Bytes per row over all the columns of a snapshot */
+    private static final int ROW_BYTES = 8 + 7 * 4;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    /* Header of the rows in a snapshot: count, metadata length and checksum */
+    private static final int HEADER_BYTES = 16;
+    /* Largest part of a column mapped at once, a whole number of segments */
+    private static final long MAX_MAPPING_BYTES = 1L << 30;
+
+    /* Distinct movies, countries, theaters and rooms a revenue cube can key */
+    static final int MAX_CODES = 1 << 16;
+
+    private volatile int size;
+    /* Rows written by the writer, including the ones not yet published */
+    private int staged;
+    private final LongColumn times;
+    private final IntColumn movies;
+    private final IntColumn countries;
+    private final IntColumn cities;
+    private final IntColumn theaters;
+    private final IntColumn rooms;
+    private final IntColumn seats;
+    private final IntColumn prices;
+
+    private final Map<Long, Integer> movieCodes = new HashMap<Long, Integer>();
+    private volatile int movieCount;
+    private long[] movieIds;
+    private String[] movieTitles;
+    private final StringDictionary countryDictionary;
+    private final StringDictionary cityDictionary;
+    private final StringDictionary theaterDictionary;
+    private final StringDictionary roomDictionary;
+
+    private TransactionStore(final Builder builder, final Columns columns) {
+        int count = columns.size;
+        times = new LongColumn(columns.times, count, OFF_HEAP);
+        movies = new IntColumn(columns.movies, count, OFF_HEAP);
+        countries = new IntColumn(columns.countries, count, OFF_HEAP);
+        cities = new IntColumn(columns.cities, count, OFF_HEAP);
+        theaters = new IntColumn(columns.theaters, count, OFF_HEAP);
+        rooms = new IntColumn(columns.rooms, count, OFF_HEAP);
+        seats = new IntColumn(columns.seats, count, OFF_HEAP);
+        prices = new IntColumn(columns.prices, count, OFF_HEAP);
+
+        int movieCount = builder.movieCodes.size();
+        movieIds = new long[Math.max(movieCount, 1)];
+        movieTitles = new String[movieIds.length];
+        for (Map.Entry<Long, Integer> entry : builder.movieCodes.entrySet()) {
+            movieCodes.put(entry.getKey(), entry.getValue());
+            movieIds[entry.getValue()] = entry.getKey();
+            movieTitles[entry.getValue()] = builder.movieTitles.get(entry
+                    .getKey());
+        }
+        countryDictionary = builder.countryDictionary;
+        cityDictionary = builder.cityDictionary;
+        theaterDictionary = builder.theaterDictionary;
+        roomDictionary = builder.roomDictionary;
+        this.movieCount = movieCount;
+        staged = count;
+        size = count;
+    }
+
+    private TransactionStore(final FileChannel channel, final long offset,
+            final int count, final long[] movieIds,
+            final String[] movieTitles,
+            final StringDictionary countryDictionary,
+            final StringDictionary cityDictionary,
+            final StringDictionary theaterDictionary,
+            final StringDictionary roomDictionary) throws IOException {
+        long position = offset;
+        times = longColumn(channel, position, count);
+        position += (long) count * 8;
+        movies = intColumn(channel, position, count);
+        countries = intColumn(channel, position += (long) count * 4, count);
+        cities = intColumn(channel, position += (long) count * 4, count);
+        theaters = intColumn(channel, position += (long) count * 4, count);
+        rooms = intColumn(channel, position += (long) count * 4, count);
+        seats = intColumn(channel, position += (long) count * 4, count);
+        prices = intColumn(channel, position += (long) count * 4, count);
+
+        for (int i = 0; i < movieIds.length; i++) {
+            movieCodes.put(movieIds[i], i);
+        }
+        this.movieIds = Arrays.copyOf(movieIds, Math.max(movieIds.length, 1));
+        this.movieTitles = Arrays.copyOf(movieTitles, this.movieIds.length);
+        this.countryDictionary = countryDictionary;
+        this.cityDictionary = cityDictionary;
+        this.theaterDictionary = theaterDictionary;
+        this.roomDictionary = roomDictionary;
+        movieCount = movieIds.length;
+        staged = count;
+        size = count;
+    }
+
+    /**
+     * Maps the values of a column in parts of at most
+     * {@value #MAX_MAPPING_BYTES} bytes, each holding whole segments, as a
+     * single mapping is limited to 2 GB.
+     */
+    private static ByteBuffer[] map(final FileChannel channel,
+            final long position, final int count, final int valueBytes)
+            throws IOException {
+        long length = (long) count * valueBytes;
+        ByteBuffer[] parts = new ByteBuffer[(int) ((length
+                + MAX_MAPPING_BYTES - 1) / MAX_MAPPING_BYTES)];
+        for (int i = 0; i < parts.length; i++) {
+            long start = i * MAX_MAPPING_BYTES;
+            parts[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    position + start,
+                    Math.min(MAX_MAPPING_BYTES, length - start)).order(
+                    ByteOrder.LITTLE_ENDIAN);
+        }
+        return parts;
+    }
+
+    private static LongColumn longColumn(final FileChannel channel,
+            final long position, final int count) throws IOException {
+        ByteBuffer[] parts = map(channel, position, count, 8);
+        LongBuffer[] values = new LongBuffer[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = parts[i].asLongBuffer();
+        }
+        return new LongColumn(values, OFF_HEAP);
+    }
+
+    private static IntColumn intColumn(final FileChannel channel,
+            final long position, final int count) throws IOException {
+        ByteBuffer[] parts = map(channel, position, count, 4);
+        IntBuffer[] values = new IntBuffer[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = parts[i].asIntBuffer();
+        }
+        return new IntColumn(values, OFF_HEAP);
+    }
+
+    /**
+     * Appends a new transaction. Callers must make sure there is only one
+     * writer at a time.
+     *
+     * @throws IllegalArgumentException
+     *             if the transaction is older than the latest one in the store
+     */
+    void append(final long time, final long movieId, final String movieTitle,
+            final String country, final String city, final String theater,
+            final String room, final int seatCount, final double price) {
+        stage(time, movieId, movieTitle, country, city, theater, room,
+                seatCount, price);
+        publish();
+    }
+
+    /**
+     * Writes a new transaction after the last one without making it visible
+     * to readers yet, so a batch of rows can be published at once with
+     * {@link #publish()}. Callers must make sure there is only one writer at
+     * a time.
+     *
+     * @return The row of the transaction.
+     * @throws IllegalArgumentException
+     *             if the transaction is older than the latest one in the store
+     *             or adds a movie, country, theater or room beyond
+     *             {@value #MAX_CODES}
+     */
+    int stage(final long time, final long movieId, final String movieTitle,
+            final String country, final String city, final String theater,
+            final String room, final int seatCount, final double price) {
+        int row = staged;
+        if (row == Integer.MAX_VALUE) {
+            throw new IllegalStateException("The transaction store is full");
+        }
+        if (row > 0 && time < times.get(row - 1)) {
+            throw new IllegalArgumentException(
+                    "Transactions must be appended in time order");
+        }
+        Integer movie = movieCodes.get(movieId);
+        // Checked before anything is encoded so the row is either stored
+        // whole or not at all
+        if (movie == null && movieCodes.size() >= MAX_CODES
+                || isFull(countryDictionary, country)
+                || isFull(theaterDictionary, theater)
+                || isFull(roomDictionary, room)) {
+            throw new IllegalArgumentException(
+                    "Too many distinct values in a transaction column");
+        }
+        if (movie == null) {
+            movie = movieCodes.size();
+            if (movie == movieIds.length) {
+                movieIds = Arrays.copyOf(movieIds, movie << 1);
+                movieTitles = Arrays.copyOf(movieTitles, movie << 1);
+            }
+            movieIds[movie] = movieId;
+            movieTitles[movie] = SymbolTable.intern(movieTitle);
+            movieCodes.put(movieId, movie);
+            movieCount = movie + 1;
+        }
+        times.set(row, time);
+        movies.set(row, movie);
+        countries.set(row, countryDictionary.encode(country));
+        cities.set(row, cityDictionary.encode(city));
+        theaters.set(row, theaterDictionary.encode(theater));
+        rooms.set(row, roomDictionary.encode(room));
+        seats.set(row, seatCount);
+        prices.set(row, toCents(price));
+        staged = row + 1;
+        return row;
+    }
+
+    private static boolean isFull(final StringDictionary dictionary,
+            final String value) {
+        return dictionary.size() >= MAX_CODES && dictionary.codeOf(value) < 0;
+    }
+
+    /**
+     * Makes the staged rows visible to readers.
+     */
+    void publish() {
+        size = staged;
+    }
+
+    static int toCents(final double price) {
+        return (int) Math.round(price * 100);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long time(final int row) {
+        return times.get(row);
+    }
+
+    long movieId(final int row) {
+        return movieIds[movies.get(row)];
+    }
+
+    int seats(final int row) {
+        return seats.get(row);
+    }
+
+    /**
+     * @return The price of the transaction in cents.
+     */
+    int priceCents(final int row) {
+        return prices.get(row);
+    }
+
+    int movieCode(final int row) {
+        return movies.get(row);
+    }
+
+    int countryCode(final int row) {
+        return countries.get(row);
+    }
+
+    int cityCode(final int row) {
+        return cities.get(row);
+    }
+
+    int theaterCode(final int row) {
+        return theaters.get(row);
+    }
+
+    int roomCode(final int row) {
+        return rooms.get(row);
+    }
+
+    /**
+     * @return The number of distinct movies in the store.
+     */
+    int movieCount() {
+        return movieCount;
+    }
+
+    long movieIdOf(final int movieCode) {
+        return movieIds[movieCode];
+    }
+
+    String movieTitleOf(final int movieCode) {
+        return movieTitles[movieCode];
+    }
+
+    StringDictionary getCountryDictionary() {
+        return countryDictionary;
+    }
+
+    StringDictionary getCityDictionary() {
+        return cityDictionary;
+    }
+
+    StringDictionary getTheaterDictionary() {
+        return theaterDictionary;
+    }
+
+    StringDictionary getRoomDictionary() {
+        return roomDictionary;
+    }
+
+    /**
+     * Materializes the given row as a domain object.
+     */
+    Transaction toTransaction(final int row) {
+        Transaction transaction = new Transaction();
+        int movie = movies.get(row);
+        transaction.setId(row);
+        transaction.setTime(new Date(times.get(row)));
+        transaction.setMovieId(movieIds[movie]);
+        transaction.setTitle(movieTitles[movie]);
+        transaction.setCountry(countryDictionary.decode(countries.get(row)));
+        transaction.setCity(cityDictionary.decode(cities.get(row)));
+        transaction.setTheater(theaterDictionary.decode(theaters.get(row)));
+        transaction.setRoom(roomDictionary.decode(rooms.get(row)));
+        transaction.setSeats(seats.get(row));
+        transaction.setPrice(prices.get(row) / 100.0);
+        return transaction;
+    }
+
+    /**
+     * @return The transactions between the given dates (both inclusive) in
+     *         ascending time order.
+     */
+    List<Transaction> between(final Date startDate, final Date endDate) {
+        int from = lowerBound(startDate.getTime());
+        int to = lowerBound(endDate.getTime() + 1);
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+        return new RowList(from, to);
+    }
+
+    /**
+     * Reads the tail of the store, which is in time order, so this takes
+     * O(count) time whatever the size of the store. Unlike the lazy views of
+     * {@link #between(Date, Date)}, the result is a copy: callers keeping it
+     * around don't keep the store reachable after a refresh replaces it.
+     *
+     * @return At most {@code count} transactions, most recent first.
+     */
+    List<Transaction> mostRecent(final int count) {
+        int end = size;
+        int n = Math.max(0, Math.min(count, end));
+        Transaction[] result = new Transaction[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = toTransaction(end - 1 - i);
+        }
+        return ImmutableList.copyOf(result);
+    }
+
+    /**
+     * @return The row of the first transaction at or after the given time.
+     */
+    int lowerBound(final long time) {
+        int low = 0;
+        int high = size;
+        LongColumn times = this.times;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times.get(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Writes the given number of first rows: a small header, the movies and
+     * dictionaries protected by a checksum and then each column as a block of
+     * little endian values, aligned to 8 bytes from the start. Published rows
+     * never change, so this is safe while the writer appends new ones.
+     */
+    void writeTo(final WritableByteChannel channel, final int count)
+            throws IOException {
+        if (count < 0 || count > size) {
+            throw new IllegalArgumentException("Invalid row count " + count);
+        }
+        int movieCount = this.movieCount;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream metadata = new DataOutputStream(bytes);
+        metadata.writeInt(movieCount);
+        for (int i = 0; i < movieCount; i++) {
+            metadata.writeLong(movieIds[i]);
+            metadata.writeUTF(movieTitles[i]);
+        }
+        countryDictionary.writeTo(metadata);
+        cityDictionary.writeTo(metadata);
+        theaterDictionary.writeTo(metadata);
+        roomDictionary.writeTo(metadata);
+        metadata.flush();
+        while (bytes.size() % 8 != 0) {
+            bytes.write(0);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(
+                ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(count).putInt(bytes.size())
+                .putLong(crc.getValue());
+        buffer.flip();
+        write(channel, buffer);
+        write(channel, ByteBuffer.wrap(bytes.toByteArray()));
+
+        buffer.clear();
+        for (int row = 0; row < count; row++) {
+            if (buffer.remaining() < 8) {
+                buffer.flip();
+                write(channel, buffer);
+                buffer.clear();
+            }
+            buffer.putLong(times.get(row));
+        }
+        for (IntColumn column : Arrays.asList(movies, countries, cities,
+                theaters, rooms, seats, prices)) {
+            for (int row = 0; row < count; row++) {
+                if (buffer.remaining() < 4) {
+                    buffer.flip();
+                    write(channel, buffer);
+                    buffer.clear();
+                }
+                buffer.putInt(column.get(row));
+            }
+        }
+        buffer.flip();
+        write(channel, buffer);
+    }
+
+    private static void write(final WritableByteChannel channel,
+            final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads a store written by {@link #writeTo(WritableByteChannel, int)} from the
+     * given position of a file up to its end. The columns are not copied but
+     * mapped, so the rows are only paged in when they're accessed. The
+     * mappings stay valid after the channel is closed.
+     *
+     * @throws IOException
+     *             if the data is truncated or corrupt
+     */
+    static TransactionStore readFrom(final FileChannel channel,
+            final long position) throws IOException {
+        ByteBuffer header = read(channel, position, HEADER_BYTES);
+        int count = header.getInt();
+        int metadataLength = header.getInt();
+        long checksum = header.getLong();
+        long columnsLength = (long) count * ROW_BYTES;
+        if (count < 0 || metadataLength < 0 || metadataLength % 8 != 0
+                || channel.size() - position - HEADER_BYTES != metadataLength
+                        + columnsLength) {
+            throw new IOException("Truncated transaction data");
+        }
+
+        byte[] bytes = read(channel, position + HEADER_BYTES, metadataLength)
+                .array();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if (crc.getValue() != checksum) {
+            throw new IOException("Corrupt transaction data");
+        }
+        DataInputStream metadata = new DataInputStream(
+                new ByteArrayInputStream(bytes));
+        long[] movieIds = new long[metadata.readInt()];
+        String[] movieTitles = new String[movieIds.length];
+        for (int i = 0; i < movieIds.length; i++) {
+            movieIds[i] = metadata.readLong();
+            movieTitles[i] = SymbolTable.intern(metadata.readUTF());
+        }
+        StringDictionary countryDictionary = StringDictionary
+                .readFrom(metadata);
+        StringDictionary cityDictionary = StringDictionary.readFrom(metadata);
+        StringDictionary theaterDictionary = StringDictionary
+                .readFrom(metadata);
+        StringDictionary roomDictionary = StringDictionary.readFrom(metadata);
+
+        return new TransactionStore(channel, position + HEADER_BYTES
+                + metadataLength, count, movieIds, movieTitles,
+                countryDictionary, cityDictionary, theaterDictionary,
+                roomDictionary);
+    }
+
+    /**
+     * @return A heap buffer with the given bytes of the file, fewer if the
+     *         file ends before.
+     */
+    private static ByteBuffer read(final FileChannel channel,
+            final long position, final int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(
+                ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()
+                && channel.read(buffer, position + buffer.position()) >= 0) {
+            // Keep reading until the buffer is full or the file ends
+        }
+        if (buffer.hasRemaining()) {
+            throw new IOException("Truncated transaction data");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * A read-only view over a range of rows which creates the
+     * {@link Transaction} objects on access.
+     */
+    private final class RowList extends AbstractList<Transaction> implements
+            RandomAccess {
+
+        private final int from;
+        private final int to;
+
+        RowList(final int from, final int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Transaction get(final int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            return toTransaction(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * The columns of encoded rows in plain arrays, for code filling them in
+     * parallel before building a store out of them with
+     * {@link Builder#build(Columns)}.
+     */
+    static final class Columns {
+        final int size;
+        final long[] times;
+        final int[] movies;
+        final int[] countries;
+        final int[] cities;
+        final int[] theaters;
+        final int[] rooms;
+        final int[] seats;
+        /* In cents */
+        final int[] prices;
+
+        Columns(final int size) {
+            this.size = size;
+            times = new long[size];
+            movies = new int[size];
+            countries = new int[size];
+            cities = new int[size];
+            theaters = new int[size];
+            rooms = new int[size];
+            seats = new int[size];
+            prices = new int[size];
+        }
+    }
+
+    /**
+     * Encodes the movies and the strings of rows generated elsewhere and
+     * builds a {@link TransactionStore} out of their columns.
+     */
+    static final class Builder {
+
+        private final Map<Long, Integer> movieCodes = new HashMap<Long, Integer>();
+        private final Map<Long, String> movieTitles = new HashMap<Long, String>();
+        private final StringDictionary countryDictionary = new StringDictionary();
+        private final StringDictionary cityDictionary = new StringDictionary();
+        private final StringDictionary theaterDictionary = new StringDictionary();
+        private final StringDictionary roomDictionary = new StringDictionary();
+
+        /**
+         * @return The code of the given movie in the built store.
+         */
+        int encodeMovie(final long movieId, final String movieTitle) {
+            Integer movie = movieCodes.get(movieId);
+            if (movie == null) {
+                movie = movieCodes.size();
+                movieCodes.put(movieId, movie);
+                movieTitles.put(movieId, SymbolTable.intern(movieTitle));
+            }
+            return movie;
+        }
+
+        StringDictionary getCountryDictionary() {
+            return countryDictionary;
+        }
+
+        StringDictionary getCityDictionary() {
+            return cityDictionary;
+        }
+
+        StringDictionary getTheaterDictionary() {
+            return theaterDictionary;
+        }
+
+        StringDictionary getRoomDictionary() {
+            return roomDictionary;
+        }
+
+        /**
+         * Builds a store of rows encoded with the movie codes and dictionaries
+         * of this builder. The arrays of the columns are used as they are,
+         * without copying them unless the store is kept off the heap.
+         *
+         * @param columns
+         *            Rows in time order.
+         */
+        TransactionStore build(final Columns columns) {
+            return new TransactionStore(this, columns);
+        }
+    }
+}
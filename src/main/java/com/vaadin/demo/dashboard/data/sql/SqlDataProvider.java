@@ -0,0 +1,810 @@
+package com.vaadin.demo.dashboard.data.sql;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.vaadin.demo.dashboard.data.DataProvider;
+import com.vaadin.demo.dashboard.data.RevenueDimension;
+import com.vaadin.demo.dashboard.data.SalesMetric;
+import com.vaadin.demo.dashboard.data.TransactionField;
+import com.vaadin.demo.dashboard.data.TransactionIngestion;
+import com.vaadin.demo.dashboard.data.TransactionPage;
+import com.vaadin.demo.dashboard.data.TransactionQuery;
+import com.vaadin.demo.dashboard.data.TransactionSort;
+import com.vaadin.demo.dashboard.data.dummy.DummyDataGenerator;
+import com.vaadin.demo.dashboard.data.dummy.GeneratedData;
+import com.vaadin.demo.dashboard.domain.DashboardNotification;
+import com.vaadin.demo.dashboard.domain.Movie;
+import com.vaadin.demo.dashboard.domain.MovieRevenue;
+import com.vaadin.demo.dashboard.domain.RevenueGroup;
+import com.vaadin.demo.dashboard.domain.Transaction;
+import com.vaadin.demo.dashboard.domain.User;
+
+/**
+ * A backend keeping the transactions in an embedded H2 database instead of
+ * the JVM heap. Connections come from a shared pool; only the short movie
+ * list is cached in memory.
+ * <p>
+ * The database is a file next to the movie lists unless the
+ * {@value #JDBC_URL_PROPERTY} system property points elsewhere. An empty
+ * database is filled once with the movies and transactions of
+ * {@link GeneratedData}. Users and notifications are not stored and are
+ * generated like in the dummy backend.
+ */
+public class SqlDataProvider implements DataProvider {
+
+    /* Overrides the default file database */
+    public static final String JDBC_URL_PROPERTY = "dashboard.jdbcUrl";
+    public static final String MAX_CONNECTIONS_PROPERTY = "dashboard.jdbcMaxConnections";
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int INGESTION_CAPACITY = 1 << 16;
+    private static final int MAX_METRIC_POINTS = 64;
+
+    private static final Logger LOGGER = Logger.getLogger(SqlDataProvider.class
+            .getName());
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS movie ("
+                    + "id BIGINT PRIMARY KEY, title VARCHAR NOT NULL, "
+                    + "synopsis VARCHAR, thumb_url VARCHAR, poster_url VARCHAR, "
+                    + "duration INT NOT NULL, release_date TIMESTAMP, "
+                    + "score INT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS ticket_sale ("
+                    + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "sale_time TIMESTAMP NOT NULL, "
+                    + "movie_id BIGINT NOT NULL REFERENCES movie (id), "
+                    + "country VARCHAR NOT NULL, city VARCHAR NOT NULL, "
+                    + "theater VARCHAR NOT NULL, room VARCHAR NOT NULL, "
+                    + "seats INT NOT NULL, price DECIMAL(12, 2) NOT NULL)",
+            // Time ranges, recent sales and daily revenue
+            "CREATE INDEX IF NOT EXISTS ticket_sale_time ON ticket_sale (sale_time)",
+            // Revenue of a movie
+            "CREATE INDEX IF NOT EXISTS ticket_sale_movie ON ticket_sale (movie_id, sale_time)",
+            // Grouping and filtering by location
+            "CREATE INDEX IF NOT EXISTS ticket_sale_location ON ticket_sale (country, city, theater, room)" };
+
+    private static final String SALES = "FROM ticket_sale s "
+            + "JOIN movie m ON m.id = s.movie_id ";
+
+    private static final String TRANSACTION_COLUMNS = "s.sale_time, s.movie_id, m.title, "
+            + "s.country, s.city, s.theater, s.room, s.seats, s.price, s.id "
+            + SALES;
+
+    private final DataSource dataSource;
+    private final TransactionIngestion ingestion;
+    private final Map<Long, Movie> movies;
+
+    /**
+     * Connects to the database of this application, creating and filling it
+     * if needed.
+     *
+     * @param baseDirectory
+     *            The directory of the movie lists and the default database
+     *            file.
+     */
+    public SqlDataProvider(final File baseDirectory) {
+        this(createDataSource(baseDirectory));
+    }
+
+    private SqlDataProvider(final DataSource dataSource) {
+        this(dataSource, createIngestion(dataSource));
+        ingestion.start();
+    }
+
+    /**
+     * @param dataSource
+     *            A database already set up with {@link #initialize}.
+     * @param ingestion
+     *            Records the offered sales to the database.
+     */
+    SqlDataProvider(final DataSource dataSource,
+            final TransactionIngestion ingestion) {
+        this.dataSource = dataSource;
+        this.ingestion = ingestion;
+        movies = Collections.unmodifiableMap(loadMovies());
+    }
+
+    /**
+     * Stops recording offered sales and closes the connections of the pool.
+     */
+    @Override
+    public void close() {
+        ingestion.stop();
+        if (dataSource instanceof JdbcConnectionPool) {
+            ((JdbcConnectionPool) dataSource).dispose();
+        }
+    }
+
+    private static DataSource createDataSource(final File baseDirectory) {
+        String url = System.getProperty(JDBC_URL_PROPERTY, "jdbc:h2:"
+                + new File(baseDirectory, "dashboard").getAbsolutePath());
+        JdbcConnectionPool pool = JdbcConnectionPool.create(url, "sa", "");
+        pool.setMaxConnections(Integer.getInteger(MAX_CONNECTIONS_PROPERTY, 10));
+        initialize(pool, new Supplier<GeneratedData>() {
+            @Override
+            public GeneratedData get() {
+                return GeneratedData.generate(baseDirectory);
+            }
+        });
+        return pool;
+    }
+
+    /**
+     * @return An ingestion inserting each batch of offered sales to the
+     *         database in a single transaction.
+     */
+    static TransactionIngestion createIngestion(final DataSource dataSource) {
+        return new TransactionIngestion("dashboard-sql-ingestion",
+                INGESTION_CAPACITY, BATCH_SIZE,
+                new TransactionIngestion.BatchWriter() {
+                    @Override
+                    public void write(final List<Transaction> batch) {
+                        try {
+                            insertSales(dataSource, batch);
+                        } catch (SQLException e) {
+                            throw new IllegalStateException(
+                                    "Saving transactions failed", e);
+                        }
+                    }
+                });
+    }
+
+    private static void insertSales(final DataSource dataSource,
+            final List<Transaction> batch) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            PreparedStatement statement = prepareInsertSale(connection);
+            for (Transaction transaction : batch) {
+                setSale(statement, transaction);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            statement.close();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+            connection.close();
+        }
+    }
+
+    /**
+     * Creates the schema if it doesn't exist yet and fills an empty database
+     * with the given generated movies and transactions.
+     *
+     * @param seed
+     *            Only called if the database is empty.
+     */
+    static void initialize(final DataSource dataSource,
+            final Supplier<GeneratedData> seed) {
+        try {
+            Connection connection = dataSource.getConnection();
+            try {
+                Statement statement = connection.createStatement();
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+                ResultSet rs = statement
+                        .executeQuery("SELECT COUNT(*) FROM movie");
+                rs.next();
+                boolean empty = rs.getLong(1) == 0;
+                statement.close();
+                if (empty) {
+                    seed(connection, seed.get());
+                }
+            } finally {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Initializing database failed", e);
+        }
+    }
+
+    private static void seed(final Connection connection,
+            final GeneratedData source) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            PreparedStatement insertMovie = connection
+                    .prepareStatement("INSERT INTO movie (id, title, synopsis, thumb_url, "
+                            + "poster_url, duration, release_date, score) "
+                            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+            for (Movie movie : source.getMovies()) {
+                insertMovie.setLong(1, movie.getId());
+                insertMovie.setString(2, movie.getTitle());
+                insertMovie.setString(3, movie.getSynopsis());
+                insertMovie.setString(4, movie.getThumbUrl());
+                insertMovie.setString(5, movie.getPosterUrl());
+                insertMovie.setInt(6, movie.getDuration());
+                if (movie.getReleaseDate() == null) {
+                    insertMovie.setNull(7, Types.TIMESTAMP);
+                } else {
+                    insertMovie.setTimestamp(7, new Timestamp(movie
+                            .getReleaseDate().getTime()));
+                }
+                insertMovie.setInt(8, movie.getScore());
+                insertMovie.addBatch();
+            }
+            insertMovie.executeBatch();
+            insertMovie.close();
+
+            PreparedStatement insertSale = prepareInsertSale(connection);
+            int batched = 0;
+            for (Transaction transaction : source.getTransactions()) {
+                setSale(insertSale, transaction);
+                insertSale.addBatch();
+                if (++batched == BATCH_SIZE) {
+                    insertSale.executeBatch();
+                    batched = 0;
+                }
+            }
+            insertSale.executeBatch();
+            insertSale.close();
+            connection.commit();
+            LOGGER.info("Filled an empty database with generated data");
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static PreparedStatement prepareInsertSale(
+            final Connection connection) throws SQLException {
+        return connection
+                .prepareStatement("INSERT INTO ticket_sale (sale_time, movie_id, "
+                        + "country, city, theater, room, seats, price) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+    }
+
+    private static void setSale(final PreparedStatement statement,
+            final Transaction transaction) throws SQLException {
+        statement.setTimestamp(1, new Timestamp(transaction.getTime()
+                .getTime()));
+        statement.setLong(2, transaction.getMovieId());
+        statement.setString(3, transaction.getCountry());
+        statement.setString(4, transaction.getCity());
+        statement.setString(5, transaction.getTheater());
+        statement.setString(6, transaction.getRoom());
+        statement.setInt(7, transaction.getSeats());
+        statement.setDouble(8, transaction.getPrice());
+    }
+
+    private Map<Long, Movie> loadMovies() {
+        try {
+            Connection connection = dataSource.getConnection();
+            try {
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(
+                        "SELECT id, title, synopsis, thumb_url, poster_url, "
+                                + "duration, release_date, score "
+                                + "FROM movie ORDER BY id");
+                Map<Long, Movie> result = new LinkedHashMap<Long, Movie>();
+                while (rs.next()) {
+                    Movie movie = new Movie();
+                    movie.setId(rs.getLong(1));
+                    movie.setTitle(rs.getString(2));
+                    movie.setSynopsis(rs.getString(3));
+                    movie.setThumbUrl(rs.getString(4));
+                    movie.setPosterUrl(rs.getString(5));
+                    movie.setDuration(rs.getInt(6));
+                    Timestamp releaseDate = rs.getTimestamp(7);
+                    movie.setReleaseDate(releaseDate == null ? null : new Date(
+                            releaseDate.getTime()));
+                    movie.setScore(rs.getInt(8));
+                    result.put(movie.getId(), movie);
+                }
+                statement.close();
+                return result;
+            } finally {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Loading movies failed", e);
+        }
+    }
+
+    /**
+     * Runs a query with the given parameters and maps each row of the result.
+     */
+    private <T> List<T> query(final String sql, final RowMapper<T> mapper,
+            final Object... parameters) {
+        try {
+            Connection connection = dataSource.getConnection();
+            try {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                ResultSet rs = statement.executeQuery();
+                List<T> result = new ArrayList<T>();
+                while (rs.next()) {
+                    result.add(mapper.map(rs));
+                }
+                statement.close();
+                return result;
+            } finally {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Query failed: " + sql, e);
+        }
+    }
+
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private static final RowMapper<Transaction> TRANSACTION_MAPPER = new RowMapper<Transaction>() {
+        @Override
+        public Transaction map(final ResultSet rs) throws SQLException {
+            Transaction transaction = new Transaction();
+            transaction.setTime(new Date(rs.getTimestamp(1).getTime()));
+            transaction.setMovieId(rs.getLong(2));
+            transaction.setTitle(rs.getString(3));
+            transaction.setCountry(rs.getString(4));
+            transaction.setCity(rs.getString(5));
+            transaction.setTheater(rs.getString(6));
+            transaction.setRoom(rs.getString(7));
+            transaction.setSeats(rs.getInt(8));
+            transaction.setPrice(rs.getDouble(9));
+            transaction.setId(rs.getLong(10));
+            return transaction;
+        }
+    };
+
+    @Override
+    public Collection<Transaction> getRecentTransactions(final int count) {
+        // Read backwards along the sale time index, stopping after count rows
+        return ImmutableList.copyOf(query("SELECT " + TRANSACTION_COLUMNS
+                + "ORDER BY s.sale_time DESC, s.id DESC LIMIT ?",
+                TRANSACTION_MAPPER, count));
+    }
+
+    @Override
+    public Collection<MovieRevenue> getDailyRevenuesByMovie(final long id) {
+        final Movie movie = movies.get(id);
+        if (movie == null) {
+            return Collections.emptyList();
+        }
+        final double[] cumulative = new double[1];
+        return query("SELECT CAST(sale_time AS DATE), SUM(price) "
+                + "FROM ticket_sale WHERE movie_id = ? "
+                + "GROUP BY CAST(sale_time AS DATE) "
+                + "ORDER BY CAST(sale_time AS DATE)",
+                new RowMapper<MovieRevenue>() {
+                    @Override
+                    public MovieRevenue map(final ResultSet rs)
+                            throws SQLException {
+                        cumulative[0] += rs.getDouble(2);
+                        return new MovieRevenue(new Date(rs.getDate(1)
+                                .getTime()), movie.getTitle(), cumulative[0]);
+                    }
+                }, id);
+    }
+
+    @Override
+    public Collection<MovieRevenue> getTotalMovieRevenues() {
+        return ImmutableList.copyOf(query(
+                "SELECT m.title, MAX(CAST(s.sale_time AS DATE)), "
+                        + "SUM(s.price) " + SALES + "GROUP BY m.id, m.title "
+                        + "ORDER BY SUM(s.price) DESC",
+                new RowMapper<MovieRevenue>() {
+                    @Override
+                    public MovieRevenue map(final ResultSet rs)
+                            throws SQLException {
+                        return new MovieRevenue(new Date(rs.getDate(2)
+                                .getTime()), rs.getString(1), rs.getDouble(3));
+                    }
+                }));
+    }
+
+    @Override
+    public User authenticate(final String userName, final String password) {
+        return DummyDataGenerator.randomUser();
+    }
+
+    @Override
+    public Collection<DashboardNotification> getNotifications(final User user) {
+        return DummyDataGenerator.randomNotifications();
+    }
+
+    @Override
+    public double getTotalSum() {
+        return query("SELECT COALESCE(SUM(price), 0) FROM ticket_sale",
+                new RowMapper<Double>() {
+                    @Override
+                    public Double map(final ResultSet rs) throws SQLException {
+                        return rs.getDouble(1);
+                    }
+                }).get(0);
+    }
+
+    @Override
+    public Collection<Movie> getMovies() {
+        return movies.values();
+    }
+
+    @Override
+    public Movie getMovie(final long movieId) {
+        Movie movie = movies.get(movieId);
+        if (movie == null) {
+            throw new NoSuchElementException("No movie with id " + movieId);
+        }
+        return movie;
+    }
+
+    @Override
+    public Collection<Transaction> getTransactionsBetween(final Date startDate,
+            final Date endDate) {
+        return query("SELECT " + TRANSACTION_COLUMNS
+                + "WHERE s.sale_time >= ? AND s.sale_time <= ? "
+                + "ORDER BY s.sale_time, s.id", TRANSACTION_MAPPER,
+                new Timestamp(startDate.getTime()),
+                new Timestamp(endDate.getTime()));
+    }
+
+    @Override
+    public TransactionPage getTransactions(final TransactionQuery query) {
+        // Ids grow with every sale, so the highest one marks a snapshot
+        long snapshot = query.getSnapshot() != null ? query.getSnapshot()
+                : query("SELECT COALESCE(MAX(id), 0) FROM ticket_sale",
+                        new RowMapper<Long>() {
+                            @Override
+                            public Long map(final ResultSet rs)
+                                    throws SQLException {
+                                return rs.getLong(1);
+                            }
+                        }).get(0);
+        StringBuilder where = new StringBuilder("WHERE s.id <= ?");
+        List<Object> parameters = new ArrayList<Object>();
+        parameters.add(snapshot);
+        if (query.getStartDate() != null) {
+            where.append(" AND s.sale_time >= ?");
+            parameters.add(new Timestamp(query.getStartDate().getTime()));
+        }
+        if (query.getEndDate() != null) {
+            where.append(" AND s.sale_time <= ?");
+            parameters.add(new Timestamp(query.getEndDate().getTime()));
+        }
+        String filterText = query.getFilterText() == null ? "" : query
+                .getFilterText().trim().toLowerCase();
+        if (!filterText.isEmpty()) {
+            String pattern = "%"
+                    + filterText.replace("\\", "\\\\").replace("%", "\\%")
+                            .replace("_", "\\_") + "%";
+            where.append(" AND (1 = 0");
+            for (TransactionField field : query.getFilterFields()) {
+                where.append(" OR LOWER(").append(columnOf(field))
+                        .append(") LIKE ? ESCAPE '\\'");
+                parameters.add(pattern);
+            }
+            where.append(")");
+        }
+
+        StringBuilder orderBy = new StringBuilder(" ORDER BY ");
+        for (TransactionSort sort : query.getSortOrder()) {
+            orderBy.append(columnOf(sort.getField()))
+                    .append(sort.isAscending() ? " ASC, " : " DESC, ");
+        }
+        // Same as the insertion order for equal keys
+        orderBy.append("s.sale_time, s.id");
+
+        int totalCount = query("SELECT COUNT(*) " + SALES + where,
+                new RowMapper<Integer>() {
+                    @Override
+                    public Integer map(final ResultSet rs) throws SQLException {
+                        return rs.getInt(1);
+                    }
+                }, parameters.toArray()).get(0);
+        parameters.add(query.getLimit());
+        parameters.add(query.getOffset());
+        List<Transaction> transactions = query("SELECT " + TRANSACTION_COLUMNS
+                + where + orderBy + " LIMIT ? OFFSET ?", TRANSACTION_MAPPER,
+                parameters.toArray());
+        return new TransactionPage(transactions, totalCount, snapshot);
+    }
+
+    private static String columnOf(final TransactionField field) {
+        switch (field) {
+        case TIME:
+            return "s.sale_time";
+        case COUNTRY:
+            return "s.country";
+        case CITY:
+            return "s.city";
+        case THEATER:
+            return "s.theater";
+        case ROOM:
+            return "s.room";
+        case TITLE:
+            return "m.title";
+        case SEATS:
+            return "s.seats";
+        case PRICE:
+            return "s.price";
+        default:
+            throw new IllegalArgumentException("Unknown field " + field);
+        }
+    }
+
+    @Override
+    public Collection<RevenueGroup> getRevenueBy(
+            final Set<RevenueDimension> dimensions, final Date startDate,
+            final Date endDate) {
+        final boolean movie = dimensions.contains(RevenueDimension.MOVIE);
+        final boolean day = dimensions.contains(RevenueDimension.DAY);
+        final boolean country = dimensions.contains(RevenueDimension.COUNTRY);
+        final boolean theater = dimensions.contains(RevenueDimension.THEATER);
+        final boolean room = dimensions.contains(RevenueDimension.ROOM);
+
+        List<String> columns = new ArrayList<String>();
+        if (movie) {
+            columns.add("s.movie_id");
+            columns.add("m.title");
+        }
+        if (day) {
+            columns.add("CAST(s.sale_time AS DATE)");
+        }
+        if (country) {
+            columns.add("s.country");
+        }
+        if (theater) {
+            columns.add("s.theater");
+        }
+        if (room) {
+            columns.add("s.room");
+        }
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (String column : columns) {
+            sql.append(column).append(", ");
+        }
+        sql.append("SUM(s.price), SUM(s.seats), COUNT(*) ").append(SALES)
+                .append("WHERE s.sale_time >= ? AND s.sale_time < ?");
+        if (!columns.isEmpty()) {
+            sql.append(" GROUP BY ");
+            for (int i = 0; i < columns.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append(columns.get(i));
+            }
+        }
+        if (day) {
+            sql.append(" ORDER BY CAST(s.sale_time AS DATE)");
+        }
+
+        long from = startOfDay(startDate, 0);
+        long until = startOfDay(endDate, 1);
+        if (from >= until) {
+            return new ArrayList<RevenueGroup>();
+        }
+        List<RevenueGroup> result = query(sql.toString(),
+                new RowMapper<RevenueGroup>() {
+                    @Override
+                    public RevenueGroup map(final ResultSet rs)
+                            throws SQLException {
+                        RevenueGroup group = new RevenueGroup();
+                        int column = 1;
+                        if (movie) {
+                            group.setMovieId(rs.getLong(column++));
+                            group.setTitle(rs.getString(column++));
+                        }
+                        if (day) {
+                            group.setDay(new Date(rs.getDate(column++)
+                                    .getTime()));
+                        }
+                        if (country) {
+                            group.setCountry(rs.getString(column++));
+                        }
+                        if (theater) {
+                            group.setTheater(rs.getString(column++));
+                        }
+                        if (room) {
+                            group.setRoom(rs.getString(column++));
+                        }
+                        group.setRevenue(rs.getDouble(column++));
+                        group.setSeats(rs.getInt(column++));
+                        group.setTransactions(rs.getInt(column));
+                        return group;
+                    }
+                }, new Timestamp(from), new Timestamp(until));
+        if (columns.isEmpty() && result.get(0).getTransactions() == 0) {
+            // Like the in-memory cube, no groups without sales
+            result.clear();
+        }
+        return result;
+    }
+
+    /**
+     * @return The start of the local day of the given date, moved by the
+     *         given number of days.
+     */
+    private static long startOfDay(final Date date, final int days) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, days);
+        return calendar.getTimeInMillis();
+    }
+
+    @Override
+    public void addTransaction(final Transaction transaction) {
+        if (!movies.containsKey(transaction.getMovieId())) {
+            throw new IllegalArgumentException("Unknown movie: "
+                    + transaction.getMovieId());
+        }
+        try {
+            Connection connection = dataSource.getConnection();
+            try {
+                PreparedStatement statement = prepareInsertSale(connection);
+                setSale(statement, transaction);
+                statement.executeUpdate();
+                statement.close();
+            } finally {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Saving transaction failed", e);
+        }
+    }
+
+    @Override
+    public boolean offerTransaction(final Transaction transaction) {
+        if (!movies.containsKey(transaction.getMovieId())) {
+            throw new IllegalArgumentException("Unknown movie: "
+                    + transaction.getMovieId());
+        }
+        return ingestion.offer(transaction);
+    }
+
+    /*
+     * The database answers the market and percentile queries exactly, by
+     * scanning the sales of the movie or all the sales.
+     */
+
+    @Override
+    public long getDistinctCountries(final long movieId) {
+        return queryNumber(
+                "SELECT COUNT(DISTINCT country) FROM ticket_sale WHERE movie_id = ?",
+                movieId).longValue();
+    }
+
+    @Override
+    public long getDistinctCities(final long movieId) {
+        return queryNumber(
+                "SELECT COUNT(DISTINCT city) FROM ticket_sale WHERE movie_id = ?",
+                movieId).longValue();
+    }
+
+    @Override
+    public double getPricePercentile(final double quantile) {
+        return percentile("price", quantile);
+    }
+
+    @Override
+    public double getSeatsPercentile(final double quantile) {
+        return percentile("seats", quantile);
+    }
+
+    private double percentile(final String column, final double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Invalid quantile " + quantile);
+        }
+        // The quantile of an ordered set aggregate must be a constant
+        Number result = queryNumber("SELECT PERCENTILE_CONT("
+                + BigDecimal.valueOf(quantile).toPlainString()
+                + ") WITHIN GROUP (ORDER BY " + column + ") FROM ticket_sale");
+        return result == null ? Double.NaN : result.doubleValue();
+    }
+
+    @Override
+    public double[] getMetricHistory(final SalesMetric metric,
+            final int points) {
+        if (points < 1 || points > MAX_METRIC_POINTS) {
+            throw new IllegalArgumentException("Invalid number of points "
+                    + points);
+        }
+        final double[] result = new double[points];
+        Timestamp latest = query("SELECT MAX(sale_time) FROM ticket_sale",
+                new RowMapper<Timestamp>() {
+                    @Override
+                    public Timestamp map(final ResultSet rs)
+                            throws SQLException {
+                        return rs.getTimestamp(1);
+                    }
+                }).get(0);
+        if (latest == null) {
+            return result;
+        }
+
+        boolean hourly = metric.getInterval() == TimeUnit.HOURS;
+        int field = hourly ? Calendar.HOUR_OF_DAY : Calendar.DAY_OF_MONTH;
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(latest);
+        if (!hourly) {
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+        }
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(field, 1 - points);
+        Timestamp from = new Timestamp(calendar.getTimeInMillis());
+        final Map<Long, Integer> positions = new HashMap<Long, Integer>();
+        for (int i = 0; i < points; i++) {
+            positions.put(calendar.getTimeInMillis(), i);
+            calendar.add(field, 1);
+        }
+
+        String interval = "DATE_TRUNC('" + (hourly ? "HOUR" : "DAY")
+                + "', sale_time)";
+        query("SELECT " + interval + ", " + metricExpression(metric)
+                + " FROM ticket_sale WHERE sale_time >= ? GROUP BY "
+                + interval, new RowMapper<Void>() {
+            @Override
+            public Void map(final ResultSet rs) throws SQLException {
+                Integer position = positions.get(rs.getTimestamp(1)
+                        .getTime());
+                if (position != null) {
+                    result[position] = rs.getDouble(2);
+                }
+                return null;
+            }
+        }, from);
+        return result;
+    }
+
+    private static String metricExpression(final SalesMetric metric) {
+        switch (metric) {
+        case SALES_PER_HOUR:
+            return "COUNT(*)";
+        case SEATS_PER_HOUR:
+            return "SUM(seats)";
+        case REVENUE_PER_DAY:
+            return "SUM(price)";
+        case AVERAGE_PRICE_PER_DAY:
+            return "AVG(price)";
+        default:
+            throw new IllegalArgumentException("Unknown metric: " + metric);
+        }
+    }
+
+    private Number queryNumber(final String sql, final Object... parameters) {
+        return query(sql, new RowMapper<Number>() {
+            @Override
+            public Number map(final ResultSet rs) throws SQLException {
+                return (Number) rs.getObject(1);
+            }
+        }, parameters).get(0);
+    }
+}
@@ -1,7 +1,11 @@
 package com.vaadin.demo.dashboard.domain;
 
+import java.io.Serializable;
+
+public final class DashboardNotification implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
-public final class DashboardNotification {
     private long id;
     private String content;
     private boolean read;
@@ -2,34 +2,33 @@ package com.vaadin.demo.dashboard.domain;
 
 import java.util.Date;
 
+/**
+ * The revenue of a movie up to a day. Instances are immutable, so they can be
+ * shared by all the readers of a ranking or a revenue series.
+ */
 public final class MovieRevenue {
 
-    private Date timestamp;
-    private String title;
-    private Double revenue;
+    private final long timestamp;
+    private final String title;
+    private final Double revenue;
 
-    public Date getTimestamp() {
-        return timestamp;
+    public MovieRevenue(final Date timestamp, final String title,
+            final Double revenue) {
+        this.timestamp = timestamp.getTime();
+        this.title = title;
+        this.revenue = revenue;
     }
 
-    public void setTimestamp(final Date timestamp) {
-        this.timestamp = timestamp;
+    public Date getTimestamp() {
+        return new Date(timestamp);
     }
 
     public String getTitle() {
         return title;
     }
 
-    public void setTitle(final String title) {
-        this.title = title;
-    }
-
     public Double getRevenue() {
         return revenue;
     }
 
-    public void setRevenue(final Double revenue) {
-        this.revenue = revenue;
-    }
-
 }
@@ -0,0 +1,92 @@
+package com.vaadin.demo.dashboard.domain;
+
+import java.util.Date;
+
+/**
+ * Aggregated revenue of one group. Only the attributes of the dimensions the
+ * revenue was grouped by are set, the others are null.
+ */
+public final class RevenueGroup {
+    private Long movieId;
+    private String title;
+    private Date day;
+    private String country;
+    private String theater;
+    private String room;
+    private double revenue;
+    private int seats;
+    private int transactions;
+
+    public Long getMovieId() {
+        return movieId;
+    }
+
+    public void setMovieId(final Long movieId) {
+        this.movieId = movieId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(final String title) {
+        this.title = title;
+    }
+
+    public Date getDay() {
+        return day;
+    }
+
+    public void setDay(final Date day) {
+        this.day = day;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(final String country) {
+        this.country = country;
+    }
+
+    public String getTheater() {
+        return theater;
+    }
+
+    public void setTheater(final String theater) {
+        this.theater = theater;
+    }
+
+    public String getRoom() {
+        return room;
+    }
+
+    public void setRoom(final String room) {
+        this.room = room;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(final double revenue) {
+        this.revenue = revenue;
+    }
+
+    public int getSeats() {
+        return seats;
+    }
+
+    public void setSeats(final int seats) {
+        this.seats = seats;
+    }
+
+    public int getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(final int transactions) {
+        this.transactions = transactions;
+    }
+
+}
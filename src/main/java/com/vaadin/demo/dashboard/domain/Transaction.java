@@ -3,6 +3,7 @@ package com.vaadin.demo.dashboard.domain;
 import java.util.Date;
 
 public final class Transaction {
+    private long id;
     private Date time;
     private String country;
     private String city;
@@ -13,6 +14,18 @@ public final class Transaction {
     private long movieId;
     private String title;
 
+    /**
+     * @return The id of the sale, unique among the transactions of its data
+     *         provider.
+     */
+    public long getId() {
+        return id;
+    }
+
+    public void setId(final long id) {
+        this.id = id;
+    }
+
     public long getMovieId() {
         return movieId;
     }
@@ -9,6 +9,7 @@ import com.vaadin.demo.dashboard.component.SparklineChart;
 import com.vaadin.demo.dashboard.component.TopGrossingMoviesChart;
 import com.vaadin.demo.dashboard.component.TopSixTheatersChart;
 import com.vaadin.demo.dashboard.component.TopTenMoviesTable;
+import com.vaadin.demo.dashboard.data.SalesMetric;
 import com.vaadin.demo.dashboard.data.dummy.DummyDataGenerator;
 import com.vaadin.demo.dashboard.domain.DashboardNotification;
 import com.vaadin.demo.dashboard.event.DashboardEvent.CloseOpenWindowsEvent;
@@ -89,25 +90,39 @@ public final class DashboardView extends Panel implements View,
         sparks.setWidth("100%");
         Responsive.makeResponsive(sparks);
 
-        SparklineChart s = new SparklineChart("Traffic", "K", "",
-                DummyDataGenerator.chartColors[0], 22, 20, 80);
+        SparklineChart s = new SparklineChart("Sales / Hour", "", "",
+                DummyDataGenerator.chartColors[0], metricValues(
+                        SalesMetric.SALES_PER_HOUR, 24, 1));
         sparks.addComponent(s);
 
-        s = new SparklineChart("Revenue / Day", "M", "$",
-                DummyDataGenerator.chartColors[2], 8, 89, 150);
+        s = new SparklineChart("Revenue / Day", "K", "$",
+                DummyDataGenerator.chartColors[2], metricValues(
+                        SalesMetric.REVENUE_PER_DAY, 8, 1000));
         sparks.addComponent(s);
 
-        s = new SparklineChart("Checkout Time", "s", "",
-                DummyDataGenerator.chartColors[3], 10, 30, 120);
+        s = new SparklineChart("Average Sale", "", "$",
+                DummyDataGenerator.chartColors[3], metricValues(
+                        SalesMetric.AVERAGE_PRICE_PER_DAY, 10, 1));
         sparks.addComponent(s);
 
-        s = new SparklineChart("Theater Fill Rate", "%", "",
-                DummyDataGenerator.chartColors[5], 50, 34, 100);
+        s = new SparklineChart("Seats / Hour", "", "",
+                DummyDataGenerator.chartColors[5], metricValues(
+                        SalesMetric.SEATS_PER_HOUR, 50, 1));
         sparks.addComponent(s);
 
         return sparks;
     }
 
+    private static double[] metricValues(final SalesMetric metric,
+            final int points, final double divisor) {
+        double[] values = DashboardUI.getDataProvider().getMetricHistory(
+                metric, points);
+        for (int i = 0; i < values.length; i++) {
+            values[i] /= divisor;
+        }
+        return values;
+    }
+
     private Component buildHeader() {
         HorizontalLayout header = new HorizontalLayout();
         header.addStyleName("viewheader");
@@ -269,7 +284,7 @@ public final class DashboardView extends Panel implements View,
         notificationsLayout.addComponent(title);
 
         Collection<DashboardNotification> notifications = DashboardUI
-                .getDataProvider().getNotifications();
+                .getNotifications().readAll();
         DashboardEventBus.post(new NotificationsCountUpdatedEvent());
 
         for (DashboardNotification notification : notifications) {
@@ -373,8 +388,7 @@ public final class DashboardView extends Panel implements View,
         @Subscribe
         public void updateNotificationsCount(
                 final NotificationsCountUpdatedEvent event) {
-            setUnreadCount(DashboardUI.getDataProvider()
-                    .getUnreadNotificationsCount());
+            setUnreadCount(DashboardUI.getNotifications().getUnreadCount());
         }
 
         public void setUnreadCount(final int count) {
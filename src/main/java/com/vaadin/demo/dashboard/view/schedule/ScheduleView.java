@@ -8,6 +8,7 @@ import java.util.List;
 import com.google.common.eventbus.Subscribe;
 import com.vaadin.demo.dashboard.DashboardUI;
 import com.vaadin.demo.dashboard.component.MovieDetailsWindow;
+import com.vaadin.demo.dashboard.data.DataProvider;
 import com.vaadin.demo.dashboard.domain.Movie;
 import com.vaadin.demo.dashboard.domain.Transaction;
 import com.vaadin.demo.dashboard.event.DashboardEvent.BrowserResizeEvent;
@@ -267,13 +268,12 @@ public final class ScheduleView extends CssLayout implements View {
                 final Date endDate) {
             // Transactions are dynamically fetched from the backend service
             // when needed.
-            Collection<Transaction> transactions = DashboardUI
-                    .getDataProvider().getTransactionsBetween(startDate,
-                            endDate);
+            DataProvider dataProvider = DashboardUI.getDataProvider();
+            Collection<Transaction> transactions = dataProvider
+                    .getTransactionsBetween(startDate, endDate);
             List<CalendarEvent> result = new ArrayList<CalendarEvent>();
             for (Transaction transaction : transactions) {
-                Movie movie = DashboardUI.getDataProvider().getMovie(
-                        transaction.getMovieId());
+                Movie movie = dataProvider.getMovie(transaction.getMovieId());
                 Date end = new Date(transaction.getTime().getTime()
                         + movie.getDuration() * 60 * 1000);
                 result.add(new MovieEvent(transaction.getTime(), end, movie));
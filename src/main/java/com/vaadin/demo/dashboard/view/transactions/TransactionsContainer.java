@@ -0,0 +1,451 @@
+package com.vaadin.demo.dashboard.view.transactions;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.vaadin.data.Container;
+import com.vaadin.data.Item;
+import com.vaadin.data.Property;
+import com.vaadin.data.util.AbstractContainer;
+import com.vaadin.data.util.BeanItem;
+import com.vaadin.data.util.filter.Or;
+import com.vaadin.data.util.filter.SimpleStringFilter;
+import com.vaadin.data.util.filter.UnsupportedFilterException;
+import com.vaadin.demo.dashboard.DashboardUI;
+import com.vaadin.demo.dashboard.data.TransactionField;
+import com.vaadin.demo.dashboard.data.TransactionPage;
+import com.vaadin.demo.dashboard.data.TransactionQuery;
+import com.vaadin.demo.dashboard.data.TransactionSort;
+import com.vaadin.demo.dashboard.domain.Transaction;
+
+/**
+ * A read-only container which fetches transactions from the backend in blocks
+ * as the table scrolls. Only a bounded number of blocks is kept in memory.
+ * Sorting and filtering are not done in the container but passed on to the
+ * backend query. Item ids are the ids of the transactions, so selected items
+ * stay the same when their blocks are evicted and fetched again.
+ * <p>
+ * Filtering supports {@link SimpleStringFilter}s on text properties, either
+ * alone or combined with {@link Or} using the same filter text.
+ */
+@SuppressWarnings("serial")
+public final class TransactionsContainer extends AbstractContainer implements
+        Container.Indexed, Container.Sortable, Container.Filterable,
+        Container.ItemSetChangeNotifier {
+
+    private static final int BLOCK_SIZE = 100;
+    private static final int MAX_CACHED_BLOCKS = 10;
+
+    private static final Map<String, Class<?>> PROPERTIES = new LinkedHashMap<String, Class<?>>();
+    static {
+        PROPERTIES.put("time", Date.class);
+        PROPERTIES.put("country", String.class);
+        PROPERTIES.put("city", String.class);
+        PROPERTIES.put("theater", String.class);
+        PROPERTIES.put("room", String.class);
+        PROPERTIES.put("title", String.class);
+        PROPERTIES.put("seats", Integer.class);
+        PROPERTIES.put("price", Double.class);
+        PROPERTIES.put("movieId", Long.class);
+    }
+
+    private final List<TransactionSort> sortOrder = new ArrayList<TransactionSort>();
+    private final List<Filter> filters = new ArrayList<Filter>();
+    private String filterText;
+    private Set<TransactionField> filterFields = EnumSet
+            .noneOf(TransactionField.class);
+
+    private int size = -1;
+    // Pages are read from the transactions there were at the first fetch
+    private Long snapshot;
+    // Item ids are the transaction ids, items of the cached blocks by id
+    private final Map<Object, BeanItem<Transaction>> items = new HashMap<Object, BeanItem<Transaction>>();
+    // Index of every item fetched since the last refresh, to fetch it again
+    private final Map<Object, Integer> indexes = new HashMap<Object, Integer>();
+    private final Map<Integer, List<Transaction>> blocks = new LinkedHashMap<Integer, List<Transaction>>(
+            16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<Integer, List<Transaction>> eldest) {
+            if (size() > MAX_CACHED_BLOCKS) {
+                for (Transaction transaction : eldest.getValue()) {
+                    items.remove(transaction.getId());
+                }
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * Drops all cached rows so they'll be fetched again on demand.
+     */
+    public void refresh() {
+        blocks.clear();
+        items.clear();
+        indexes.clear();
+        size = -1;
+        snapshot = null;
+        fireItemSetChange();
+    }
+
+    private TransactionQuery createQuery(final int offset, final int limit) {
+        TransactionQuery query = new TransactionQuery();
+        query.setOffset(offset);
+        query.setLimit(limit);
+        query.setSortOrder(sortOrder);
+        query.setSnapshot(snapshot);
+        if (filterText != null) {
+            query.setFilterText(filterText);
+            query.setFilterFields(filterFields);
+        }
+        return query;
+    }
+
+    private List<Transaction> getBlock(final int block) {
+        List<Transaction> transactions = blocks.get(block);
+        if (transactions == null) {
+            TransactionPage page = DashboardUI.getDataProvider()
+                    .getTransactions(
+                            createQuery(block * BLOCK_SIZE, BLOCK_SIZE));
+            pin(page);
+            transactions = page.getTransactions();
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                items.put(transaction.getId(), new BeanItem<Transaction>(
+                        transaction));
+                indexes.put(transaction.getId(), block * BLOCK_SIZE + i);
+            }
+            blocks.put(block, transactions);
+        }
+        return transactions;
+    }
+
+    @Override
+    public int size() {
+        if (size < 0) {
+            TransactionPage page = DashboardUI.getDataProvider()
+                    .getTransactions(createQuery(0, 0));
+            pin(page);
+        }
+        return size;
+    }
+
+    /**
+     * Pins the following pages to the snapshot of the given page.
+     */
+    private void pin(final TransactionPage page) {
+        if (snapshot != null && snapshot != page.getSnapshot()) {
+            // The backend replaced its transactions, so the cached rows are
+            // gone
+            blocks.clear();
+            items.clear();
+            indexes.clear();
+        }
+        size = page.getTotalCount();
+        snapshot = page.getSnapshot();
+    }
+
+    @Override
+    public Object getIdByIndex(final int index) {
+        if (index < 0 || index >= size()) {
+            return null;
+        }
+        List<Transaction> block = getBlock(index / BLOCK_SIZE);
+        int offset = index % BLOCK_SIZE;
+        return offset < block.size() ? block.get(offset).getId() : null;
+    }
+
+    @Override
+    public int indexOfId(final Object itemId) {
+        Integer index = indexes.get(itemId);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public List<?> getItemIds(final int startIndex, final int numberOfItems) {
+        List<Object> result = new ArrayList<Object>();
+        int end = Math.min(size(), startIndex + numberOfItems);
+        for (int i = startIndex; i < end; i++) {
+            Object itemId = getIdByIndex(i);
+            if (itemId != null) {
+                result.add(itemId);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<?> getItemIds() {
+        return new AbstractList<Object>() {
+            @Override
+            public Object get(final int index) {
+                return getIdByIndex(index);
+            }
+
+            @Override
+            public int size() {
+                return TransactionsContainer.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Item getItem(final Object itemId) {
+        return getBeanItem(itemId);
+    }
+
+    private BeanItem<Transaction> getBeanItem(final Object itemId) {
+        BeanItem<Transaction> item = items.get(itemId);
+        Integer index = indexes.get(itemId);
+        if (item == null && index != null) {
+            // The pages are pinned, so the block has the same items again
+            getBlock(index / BLOCK_SIZE);
+            item = items.get(itemId);
+        }
+        return item;
+    }
+
+    @Override
+    public boolean containsId(final Object itemId) {
+        return indexes.containsKey(itemId);
+    }
+
+    /**
+     * @return The transactions of the given item ids, such as the selected
+     *         rows of a table, skipping ids not in this container.
+     */
+    public List<Transaction> getTransactions(final Collection<?> itemIds) {
+        List<Transaction> result = new ArrayList<Transaction>();
+        for (Object itemId : itemIds) {
+            BeanItem<Transaction> item = getBeanItem(itemId);
+            if (item != null) {
+                result.add(item.getBean());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<?> getContainerPropertyIds() {
+        return Collections.unmodifiableSet(PROPERTIES.keySet());
+    }
+
+    @Override
+    public Property<?> getContainerProperty(final Object itemId,
+            final Object propertyId) {
+        Item item = getItem(itemId);
+        return item == null ? null : item.getItemProperty(propertyId);
+    }
+
+    @Override
+    public Class<?> getType(final Object propertyId) {
+        return PROPERTIES.get(propertyId);
+    }
+
+    @Override
+    public Object nextItemId(final Object itemId) {
+        int index = indexOfId(itemId);
+        return index < 0 ? null : getIdByIndex(index + 1);
+    }
+
+    @Override
+    public Object prevItemId(final Object itemId) {
+        int index = indexOfId(itemId);
+        return index < 1 ? null : getIdByIndex(index - 1);
+    }
+
+    @Override
+    public Object firstItemId() {
+        return getIdByIndex(0);
+    }
+
+    @Override
+    public Object lastItemId() {
+        return getIdByIndex(size() - 1);
+    }
+
+    @Override
+    public boolean isFirstId(final Object itemId) {
+        return itemId != null && indexOfId(itemId) == 0;
+    }
+
+    @Override
+    public boolean isLastId(final Object itemId) {
+        return itemId != null && indexOfId(itemId) == size() - 1;
+    }
+
+    @Override
+    public void sort(final Object[] propertyId, final boolean[] ascending) {
+        sortOrder.clear();
+        for (int i = 0; i < propertyId.length; i++) {
+            TransactionField field = TransactionField
+                    .getByPropertyId(propertyId[i]);
+            if (field != null) {
+                sortOrder.add(new TransactionSort(field, i < ascending.length
+                        && ascending[i]));
+            }
+        }
+        refresh();
+    }
+
+    @Override
+    public Collection<?> getSortableContainerPropertyIds() {
+        List<String> result = new ArrayList<String>();
+        for (TransactionField field : TransactionField.values()) {
+            result.add(field.getPropertyId());
+        }
+        return result;
+    }
+
+    @Override
+    public void addContainerFilter(final Filter filter)
+            throws UnsupportedFilterException {
+        List<SimpleStringFilter> stringFilters = new ArrayList<SimpleStringFilter>();
+        if (filter instanceof SimpleStringFilter) {
+            stringFilters.add((SimpleStringFilter) filter);
+        } else if (filter instanceof Or) {
+            for (Filter part : ((Or) filter).getFilters()) {
+                if (!(part instanceof SimpleStringFilter)) {
+                    throw new UnsupportedFilterException(
+                            "Only string filters are supported");
+                }
+                stringFilters.add((SimpleStringFilter) part);
+            }
+        } else {
+            throw new UnsupportedFilterException(
+                    "Only string filters are supported");
+        }
+
+        String text = null;
+        Set<TransactionField> fields = EnumSet.noneOf(TransactionField.class);
+        for (SimpleStringFilter stringFilter : stringFilters) {
+            TransactionField field = TransactionField
+                    .getByPropertyId(stringFilter.getPropertyId());
+            if (field == null || !field.isText()
+                    || !stringFilter.isIgnoreCase()
+                    || stringFilter.isOnlyMatchPrefix()
+                    || (text != null && !text.equals(stringFilter
+                            .getFilterString()))) {
+                throw new UnsupportedFilterException(
+                        "Only case insensitive substring filters with a common text are supported");
+            }
+            text = stringFilter.getFilterString();
+            fields.add(field);
+        }
+        if (filterText != null) {
+            throw new UnsupportedFilterException(
+                    "Only a single filter is supported");
+        }
+
+        filterText = text;
+        filterFields = fields;
+        filters.add(filter);
+        refresh();
+    }
+
+    @Override
+    public void removeContainerFilter(final Filter filter) {
+        if (filters.remove(filter)) {
+            removeAllContainerFilters();
+        }
+    }
+
+    @Override
+    public void removeAllContainerFilters() {
+        filters.clear();
+        filterText = null;
+        filterFields = EnumSet.noneOf(TransactionField.class);
+        refresh();
+    }
+
+    @Override
+    public Collection<Filter> getContainerFilters() {
+        return Collections.unmodifiableList(filters);
+    }
+
+    @Override
+    public void addItemSetChangeListener(
+            final Container.ItemSetChangeListener listener) {
+        super.addItemSetChangeListener(listener);
+    }
+
+    @Override
+    @Deprecated
+    public void addListener(final Container.ItemSetChangeListener listener) {
+        super.addListener(listener);
+    }
+
+    @Override
+    public void removeItemSetChangeListener(
+            final Container.ItemSetChangeListener listener) {
+        super.removeItemSetChangeListener(listener);
+    }
+
+    @Override
+    @Deprecated
+    public void removeListener(final Container.ItemSetChangeListener listener) {
+        super.removeListener(listener);
+    }
+
+    @Override
+    public Object addItemAt(final int index) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Item addItemAt(final int index, final Object newItemId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object addItemAfter(final Object previousItemId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Item addItemAfter(final Object previousItemId,
+            final Object newItemId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Item addItem(final Object itemId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object addItem() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeItem(final Object itemId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addContainerProperty(final Object propertyId,
+            final Class<?> type, final Object defaultValue) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeContainerProperty(final Object propertyId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAllItems() {
+        throw new UnsupportedOperationException();
+    }
+}
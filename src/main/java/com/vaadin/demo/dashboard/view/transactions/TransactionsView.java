@@ -4,23 +4,19 @@ import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.Set;
 
-import org.vaadin.maddon.FilterableListContainer;
-
 import com.google.common.eventbus.Subscribe;
-import com.vaadin.data.Container.Filter;
 import com.vaadin.data.Container.Filterable;
 import com.vaadin.data.Item;
 import com.vaadin.data.Property;
 import com.vaadin.data.Property.ValueChangeEvent;
 import com.vaadin.data.Property.ValueChangeListener;
+import com.vaadin.data.util.filter.Or;
+import com.vaadin.data.util.filter.SimpleStringFilter;
 import com.vaadin.demo.dashboard.DashboardUI;
 import com.vaadin.demo.dashboard.component.MovieDetailsWindow;
-import com.vaadin.demo.dashboard.domain.Transaction;
 import com.vaadin.demo.dashboard.event.DashboardEvent.BrowserResizeEvent;
 import com.vaadin.demo.dashboard.event.DashboardEvent.TransactionReportEvent;
 import com.vaadin.demo.dashboard.event.DashboardEventBus;
@@ -125,35 +121,14 @@ public final class TransactionsView extends VerticalLayout implements View {
             public void textChange(final TextChangeEvent event) {
                 Filterable data = (Filterable) table.getContainerDataSource();
                 data.removeAllContainerFilters();
-                data.addContainerFilter(new Filter() {
-                    @Override
-                    public boolean passesFilter(final Object itemId,
-                            final Item item) {
-
-                        if (event.getText() == null
-                                || event.getText().equals("")) {
-                            return true;
-                        }
-
-                        return filterByProperty("country", item,
-                                event.getText())
-                                || filterByProperty("city", item,
-                                        event.getText())
-                                || filterByProperty("title", item,
-                                        event.getText());
-
-                    }
-
-                    @Override
-                    public boolean appliesToProperty(final Object propertyId) {
-                        if (propertyId.equals("country")
-                                || propertyId.equals("city")
-                                || propertyId.equals("title")) {
-                            return true;
-                        }
-                        return false;
-                    }
-                });
+                if (event.getText() != null && !event.getText().equals("")) {
+                    // Filtering is done by the backend
+                    data.addContainerFilter(new Or(new SimpleStringFilter(
+                            "country", event.getText(), true, false),
+                            new SimpleStringFilter("city", event.getText(),
+                                    true, false), new SimpleStringFilter(
+                                    "title", event.getText(), true, false)));
+                }
             }
         });
 
@@ -202,8 +177,7 @@ public final class TransactionsView extends VerticalLayout implements View {
         table.setColumnCollapsible("price", false);
 
         table.setColumnReorderingAllowed(true);
-        table.setContainerDataSource(new TempTransactionsContainer(DashboardUI
-                .getDataProvider().getRecentTransactions(200)));
+        table.setContainerDataSource(new TransactionsContainer());
         table.setSortContainerPropertyId("time");
         table.setSortAscending(false);
 
@@ -267,25 +241,12 @@ public final class TransactionsView extends VerticalLayout implements View {
         }
     }
 
-    private boolean filterByProperty(final String prop, final Item item,
-            final String text) {
-        if (item == null || item.getItemProperty(prop) == null
-                || item.getItemProperty(prop).getValue() == null) {
-            return false;
-        }
-        String val = item.getItemProperty(prop).getValue().toString().trim()
-                .toLowerCase();
-        if (val.contains(text.toLowerCase().trim())) {
-            return true;
-        }
-        return false;
-    }
-
     void createNewReportFromSelection() {
         UI.getCurrent().getNavigator()
                 .navigateTo(DashboardViewType.REPORTS.getViewName());
         DashboardEventBus.post(new TransactionReportEvent(
-                (Collection<Transaction>) table.getValue()));
+                ((TransactionsContainer) table.getContainerDataSource())
+                        .getTransactions((Collection<?>) table.getValue())));
     }
 
     @Override
@@ -323,52 +284,4 @@ public final class TransactionsView extends VerticalLayout implements View {
         }
     }
 
-    private class TempTransactionsContainer extends
-            FilterableListContainer<Transaction> {
-
-        public TempTransactionsContainer(
-                final Collection<Transaction> collection) {
-            super(collection);
-        }
-
-        // This is only temporarily overridden until issues with
-        // BeanComparator get resolved.
-        @Override
-        public void sort(final Object[] propertyId, final boolean[] ascending) {
-            final boolean sortAscending = ascending[0];
-            final Object sortContainerPropertyId = propertyId[0];
-            Collections.sort(getBackingList(), new Comparator<Transaction>() {
-                @Override
-                public int compare(final Transaction o1, final Transaction o2) {
-                    int result = 0;
-                    if ("time".equals(sortContainerPropertyId)) {
-                        result = o1.getTime().compareTo(o2.getTime());
-                    } else if ("country".equals(sortContainerPropertyId)) {
-                        result = o1.getCountry().compareTo(o2.getCountry());
-                    } else if ("city".equals(sortContainerPropertyId)) {
-                        result = o1.getCity().compareTo(o2.getCity());
-                    } else if ("theater".equals(sortContainerPropertyId)) {
-                        result = o1.getTheater().compareTo(o2.getTheater());
-                    } else if ("room".equals(sortContainerPropertyId)) {
-                        result = o1.getRoom().compareTo(o2.getRoom());
-                    } else if ("title".equals(sortContainerPropertyId)) {
-                        result = o1.getTitle().compareTo(o2.getTitle());
-                    } else if ("seats".equals(sortContainerPropertyId)) {
-                        result = new Integer(o1.getSeats()).compareTo(o2
-                                .getSeats());
-                    } else if ("price".equals(sortContainerPropertyId)) {
-                        result = new Double(o1.getPrice()).compareTo(o2
-                                .getPrice());
-                    }
-
-                    if (!sortAscending) {
-                        result *= -1;
-                    }
-                    return result;
-                }
-            });
-        }
-
-    }
-
 }
@@ -0,0 +1,116 @@
+package com.vaadin.demo.dashboard.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Runs {@link MpscRingBuffer} with a single producer and with several
+ * concurrent producers.
+ */
+public class MpscRingBufferTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int PER_PRODUCER = 100000;
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        Assert.assertEquals(1, new MpscRingBuffer<Integer>(1).capacity());
+        Assert.assertEquals(8, new MpscRingBuffer<Integer>(5).capacity());
+        Assert.assertEquals(8, new MpscRingBuffer<Integer>(8).capacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCapacityIsRejected() {
+        new MpscRingBuffer<Integer>(0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullIsRejected() {
+        new MpscRingBuffer<Integer>(4).offer(null);
+    }
+
+    @Test
+    public void singleProducerKeepsOrder() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<Integer>(4);
+        Assert.assertTrue(buffer.isEmpty());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(buffer.offer(i));
+        }
+        Assert.assertFalse(buffer.offer(4));
+        Assert.assertEquals(4, buffer.size());
+
+        List<Integer> drained = new ArrayList<Integer>();
+        Assert.assertEquals(3, buffer.drainTo(drained, 3));
+        Assert.assertTrue(buffer.offer(4));
+        Assert.assertTrue(buffer.offer(5));
+        Assert.assertTrue(buffer.offer(6));
+        Assert.assertEquals(4, buffer.drainTo(drained, 10));
+        Assert.assertTrue(buffer.isEmpty());
+
+        for (int i = 0; i < drained.size(); i++) {
+            Assert.assertEquals(Integer.valueOf(i), drained.get(i));
+        }
+        Assert.assertEquals(7, drained.size());
+    }
+
+    @Test
+    public void multipleProducersLoseNothing() throws InterruptedException {
+        final MpscRingBuffer<long[]> buffer = new MpscRingBuffer<long[]>(1024);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < PER_PRODUCER; i++) {
+                        long[] element = { producer, i };
+                        while (!buffer.offer(element)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            thread.start();
+            producers.add(thread);
+        }
+        start.countDown();
+
+        long[] next = new long[PRODUCERS];
+        List<long[]> drained = new ArrayList<long[]>();
+        long received = 0;
+        long deadline = System.currentTimeMillis() + 60000;
+        while (received < (long) PRODUCERS * PER_PRODUCER) {
+            Assert.assertTrue("Timed out",
+                    System.currentTimeMillis() < deadline);
+            drained.clear();
+            if (buffer.drainTo(drained, 256) == 0) {
+                Thread.yield();
+                continue;
+            }
+            for (long[] element : drained) {
+                int producer = (int) element[0];
+                // Each producer's elements arrive in the order offered
+                Assert.assertEquals(next[producer], element[1]);
+                next[producer]++;
+                received++;
+            }
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+        Assert.assertTrue(buffer.isEmpty());
+        for (int p = 0; p < PRODUCERS; p++) {
+            Assert.assertEquals(PER_PRODUCER, next[p]);
+        }
+    }
+}
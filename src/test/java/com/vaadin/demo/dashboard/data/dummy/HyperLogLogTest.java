@@ -0,0 +1,69 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the estimates of {@link HyperLogLog} against exact counts.
+ */
+public class HyperLogLogTest {
+
+    private static void assertWithin(final long expected,
+            final long estimate, final double error) {
+        Assert.assertTrue("Estimated " + estimate + " for " + expected,
+                Math.abs(estimate - expected) <= expected * error);
+    }
+
+    @Test
+    public void emptyEstimatesZero() {
+        Assert.assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    public void smallCountsAreNearlyExact() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 1; i <= 100; i++) {
+            sketch.add(i);
+        }
+        assertWithin(100, sketch.estimate(), 0.03);
+    }
+
+    @Test
+    public void largeCountsStayWithinBounds() {
+        // Several standard errors of the 1024 registers
+        for (int seed = 0; seed < 5; seed++) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int i = 0; i < 100000; i++) {
+                sketch.add(seed * 1000003 + i);
+            }
+            assertWithin(100000, sketch.estimate(), 0.1);
+        }
+    }
+
+    @Test
+    public void duplicatesAreCountedOnce() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 5000; i++) {
+            sketch.add(i);
+        }
+        long estimate = sketch.estimate();
+        for (int repeat = 0; repeat < 3; repeat++) {
+            for (int i = 0; i < 5000; i++) {
+                sketch.add(i);
+            }
+        }
+        Assert.assertEquals(estimate, sketch.estimate());
+    }
+
+    @Test
+    public void mergedSketchCountsTheUnion() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (int i = 0; i < 30000; i++) {
+            first.add(i);
+            second.add(i + 20000);
+        }
+        first.addAll(second);
+        assertWithin(50000, first.estimate(), 0.1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.nio.IntBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Appends to {@link IntColumn} across segment boundaries, on the heap, in
+ * direct buffers and over read-only segments.
+ */
+public class IntColumnTest {
+
+    private static final int ROWS = 2 * IntColumn.SEGMENT_SIZE + 5;
+
+    private static void fill(final IntColumn column, final int from) {
+        for (int row = from; row < ROWS; row++) {
+            column.set(row, row * 3);
+        }
+    }
+
+    private static void assertFilled(final IntColumn column) {
+        for (int row = 0; row < ROWS; row++) {
+            Assert.assertEquals(row * 3, column.get(row));
+        }
+    }
+
+    @Test
+    public void appendOnHeap() {
+        IntColumn column = new IntColumn(false);
+        fill(column, 0);
+        assertFilled(column);
+    }
+
+    @Test
+    public void appendDirect() {
+        IntColumn column = new IntColumn(true);
+        fill(column, 0);
+        assertFilled(column);
+    }
+
+    @Test
+    public void appendAfterReadOnlySegments() {
+        int[] values = new int[IntColumn.SEGMENT_SIZE + 10];
+        for (int row = 0; row < values.length; row++) {
+            values[row] = row * 3;
+        }
+        IntColumn column = new IntColumn(new IntBuffer[] { IntBuffer.wrap(
+                values).asReadOnlyBuffer() }, false);
+        fill(column, values.length);
+        assertFilled(column);
+    }
+
+    @Test
+    public void readersSeePublishedRows() throws InterruptedException {
+        final IntColumn column = new IntColumn(true);
+        // Stands for the volatile size of the store
+        final AtomicInteger published = new AtomicInteger();
+        final Throwable[] failure = new Throwable[1];
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int size = 0;
+                while (size < ROWS) {
+                    size = published.get();
+                    try {
+                        for (int row = Math.max(0, size - 64); row < size; row++) {
+                            Assert.assertEquals(row * 3, column.get(row));
+                        }
+                    } catch (Throwable e) {
+                        failure[0] = e;
+                        return;
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int row = 0; row < ROWS; row++) {
+            column.set(row, row * 3);
+            published.set(row + 1);
+        }
+        reader.join();
+        Assert.assertNull(failure[0]);
+    }
+}
@@ -0,0 +1,153 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.vaadin.demo.dashboard.domain.Movie;
+
+/**
+ * Runs {@link MovieCatalogService} against a local stub of the movie list
+ * API.
+ */
+public class MovieCatalogServiceTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+    private final BlockingQueue<HttpExchange> requests = new LinkedBlockingQueue<HttpExchange>();
+    private volatile int status = 200;
+
+    private File directory;
+    private File cache;
+    private File fallback;
+    private ScheduledExecutorService executor;
+    private URL url;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/movies", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                byte[] body = movieList("Remote").getBytes(
+                        StandardCharsets.UTF_8);
+                if (status != 200) {
+                    exchange.sendResponseHeaders(status, -1);
+                } else if (ETAG.equals(exchange.getRequestHeaders().getFirst(
+                        "If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    exchange.getResponseHeaders().set("ETag", ETAG);
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                }
+                exchange.close();
+                requests.add(exchange);
+            }
+        });
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort()
+                + "/movies");
+
+        directory = Files.createTempDirectory("movies").toFile();
+        cache = new File(directory, "movies.txt");
+        fallback = new File(directory, "movies-fallback.txt");
+        Files.write(fallback.toPath(),
+                movieList("Fallback").getBytes(StandardCharsets.UTF_8));
+        executor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        server.stop(0);
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testServesFallbackAndDownloadsInBackground()
+            throws InterruptedException {
+        final CountDownLatch changed = new CountDownLatch(1);
+        MovieCatalogService service = new MovieCatalogService(url, cache,
+                fallback, executor, new Runnable() {
+                    @Override
+                    public void run() {
+                        changed.countDown();
+                    }
+                });
+        service.start();
+        Assert.assertEquals(1, service.getMovies().size());
+
+        Assert.assertTrue(changed.await(5, TimeUnit.SECONDS));
+        List<Movie> movies = service.getMovies();
+        Assert.assertEquals("Remote", movies.get(0).getTitle());
+        Assert.assertTrue(cache.exists());
+    }
+
+    @Test
+    public void testRevalidatesWithEtag() throws InterruptedException {
+        MovieCatalogService service = new MovieCatalogService(url, cache,
+                fallback, executor, null);
+        service.setMaxAge(100, TimeUnit.MILLISECONDS);
+        service.start();
+
+        HttpExchange first = requests.poll(5, TimeUnit.SECONDS);
+        Assert.assertNull(first.getRequestHeaders().getFirst("If-None-Match"));
+        HttpExchange second = requests.poll(5, TimeUnit.SECONDS);
+        Assert.assertEquals(ETAG,
+                second.getRequestHeaders().getFirst("If-None-Match"));
+        Assert.assertEquals("Remote", service.getMovies().get(0).getTitle());
+    }
+
+    @Test
+    public void testKeepsServingCacheOnFailure() throws InterruptedException {
+        status = 503;
+        MovieCatalogService service = new MovieCatalogService(url, cache,
+                fallback, executor, null);
+        service.setRetryDelays(10, 1000, TimeUnit.MILLISECONDS);
+        service.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            Assert.assertNotNull(requests.poll(5, TimeUnit.SECONDS));
+        }
+        // Retried after 10 + 20 + 40 ms at least
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS
+                .toNanos(70));
+        Assert.assertEquals("Fallback", service.getMovies().get(0).getTitle());
+    }
+
+    private static String movieList(final String title) {
+        return "{\"movies\":[{\"title\":\"" + title + "\",\"runtime\":90,"
+                + "\"release_dates\":{\"theater\":\"2014-09-26\"},"
+                + "\"ratings\":{\"critics_score\":74},"
+                + "\"synopsis\":\"\",\"posters\":{"
+                + "\"profile\":\"http://example.com/1_tmb.jpg\","
+                + "\"detailed\":\"http://example.com/1_tmb.jpg\"}}]}";
+    }
+}
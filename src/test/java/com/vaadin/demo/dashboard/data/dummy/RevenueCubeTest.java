@@ -0,0 +1,211 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import com.vaadin.demo.dashboard.data.RevenueDimension;
+import com.vaadin.demo.dashboard.domain.Movie;
+import com.vaadin.demo.dashboard.domain.RevenueGroup;
+import com.vaadin.demo.dashboard.domain.Transaction;
+
+/**
+ * Compares the groups of a {@link RevenueCube} with the same aggregation
+ * computed row by row over its store.
+ */
+public class RevenueCubeTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private TransactionStore store;
+    private RevenueCube cube;
+    private long end;
+
+    @Before
+    public void setUp() {
+        Multimap<String, String> countryToCities = ArrayListMultimap.create();
+        countryToCities.put("Finland", "Turku");
+        countryToCities.put("Finland", "Helsinki");
+        countryToCities.put("Sweden", "Malmo");
+        countryToCities.put("Germany", "Berlin");
+        List<Movie> movies = new ArrayList<Movie>();
+        for (int i = 0; i < 12; i++) {
+            Movie movie = new Movie();
+            movie.setId(100 + i);
+            movie.setTitle("Movie " + i);
+            movies.add(movie);
+        }
+        end = System.currentTimeMillis();
+        store = new TransactionGenerator(7, 50000, 2).generate(
+                countryToCities, movies, Arrays.asList("Theater 1",
+                        "Theater 2", "Theater 3"), Arrays.asList("Room 1",
+                        "Room 2"), end);
+        cube = new RevenueCube(store);
+
+        // Live sales are added to the cube one by one
+        for (int i = 0; i < 100; i++) {
+            store.append(end + i * 1000, 100 + i % 12, "Movie " + i % 12,
+                    "Sweden", "Malmo", "Theater 2", "Room 1", 1 + i % 3,
+                    8.5);
+            cube.add(store.size() - 1);
+        }
+    }
+
+    @Test
+    public void matchesBruteForceAggregation() {
+        List<Set<RevenueDimension>> dimensionSets = new ArrayList<Set<RevenueDimension>>();
+        dimensionSets.add(EnumSet.noneOf(RevenueDimension.class));
+        dimensionSets.add(EnumSet.of(RevenueDimension.MOVIE));
+        dimensionSets.add(EnumSet.of(RevenueDimension.DAY));
+        dimensionSets.add(EnumSet.of(RevenueDimension.COUNTRY,
+                RevenueDimension.THEATER));
+        dimensionSets.add(EnumSet.of(RevenueDimension.MOVIE,
+                RevenueDimension.DAY, RevenueDimension.ROOM));
+        dimensionSets.add(EnumSet.allOf(RevenueDimension.class));
+
+        long first = store.time(0);
+        long last = store.time(store.size() - 1);
+        long[][] ranges = { { first, last }, { first + 40 * DAY, last },
+                { first + 10 * DAY, first + 75 * DAY },
+                { last - 3 * DAY, last }, { last, last },
+                { last + 5 * DAY, last + 9 * DAY } };
+
+        for (Set<RevenueDimension> dimensions : dimensionSets) {
+            for (long[] range : ranges) {
+                Date start = new Date(range[0]);
+                Date to = new Date(range[1]);
+                Assert.assertEquals(dimensions + " " + start + " - " + to,
+                        bruteForce(dimensions, start, to),
+                        toTotals(dimensions, cube.query(dimensions, start, to)));
+            }
+        }
+    }
+
+    @Test
+    public void emptyRangeHasNoGroups() {
+        Assert.assertTrue(cube.query(
+                EnumSet.of(RevenueDimension.MOVIE),
+                new Date(store.time(store.size() - 1)),
+                new Date(store.time(0))).isEmpty());
+    }
+
+    @Test
+    public void storeRejectsValuesTheCubeCannotKey() {
+        TransactionStore store = TestStores.empty();
+        RevenueCube cube = new RevenueCube(store);
+        for (int i = 0; i < TransactionStore.MAX_CODES; i++) {
+            store.append(i, 100, "Movie", "Finland", "Turku", "Theater",
+                    "Room " + i, 1, 10);
+            cube.add(i);
+        }
+        try {
+            store.append(end, 100, "Movie", "Finland", "Turku", "Theater",
+                    "One room too many", 1, 10);
+            Assert.fail("Expected the room to be rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        Assert.assertEquals(TransactionStore.MAX_CODES, store.size());
+        // Known values are still accepted
+        store.append(end, 100, "Movie", "Finland", "Turku", "Theater",
+                "Room 0", 1, 10);
+        cube.add(store.size() - 1);
+        Assert.assertEquals(TransactionStore.MAX_CODES + 1,
+                cube.query(EnumSet.of(RevenueDimension.MOVIE), new Date(0),
+                        new Date(end)).get(0).getTransactions());
+    }
+
+    private Map<List<Object>, List<Long>> bruteForce(
+            final Set<RevenueDimension> dimensions, final Date start,
+            final Date to) {
+        long from = MovieRevenueSeries.startOfDay(start.getTime());
+        long until = MovieRevenueSeries.startOfDay(to.getTime());
+        Map<List<Object>, List<Long>> result = new HashMap<List<Object>, List<Long>>();
+        for (int row = 0; row < store.size(); row++) {
+            long day = MovieRevenueSeries.startOfDay(store.time(row));
+            if (day < from || day > until) {
+                continue;
+            }
+            Transaction transaction = store.toTransaction(row);
+            List<Object> key = new ArrayList<Object>();
+            for (RevenueDimension dimension : dimensions) {
+                switch (dimension) {
+                case MOVIE:
+                    key.add(transaction.getMovieId());
+                    break;
+                case DAY:
+                    key.add(day);
+                    break;
+                case COUNTRY:
+                    key.add(transaction.getCountry());
+                    break;
+                case THEATER:
+                    key.add(transaction.getTheater());
+                    break;
+                case ROOM:
+                    key.add(transaction.getRoom());
+                    break;
+                }
+            }
+            add(result, key, store.priceCents(row), store.seats(row));
+        }
+        return result;
+    }
+
+    private static Map<List<Object>, List<Long>> toTotals(
+            final Set<RevenueDimension> dimensions,
+            final List<RevenueGroup> groups) {
+        Map<List<Object>, List<Long>> result = new HashMap<List<Object>, List<Long>>();
+        for (RevenueGroup group : groups) {
+            List<Object> key = new ArrayList<Object>();
+            for (RevenueDimension dimension : dimensions) {
+                switch (dimension) {
+                case MOVIE:
+                    key.add(group.getMovieId());
+                    break;
+                case DAY:
+                    key.add(group.getDay().getTime());
+                    break;
+                case COUNTRY:
+                    key.add(group.getCountry());
+                    break;
+                case THEATER:
+                    key.add(group.getTheater());
+                    break;
+                case ROOM:
+                    key.add(group.getRoom());
+                    break;
+                }
+            }
+            Assert.assertFalse("Duplicate group " + key,
+                    result.containsKey(key));
+            result.put(key, Arrays.asList(
+                    Math.round(group.getRevenue() * 100),
+                    (long) group.getSeats(), (long) group.getTransactions()));
+        }
+        return result;
+    }
+
+    private static void add(final Map<List<Object>, List<Long>> totals,
+            final List<Object> key, final int cents, final int seats) {
+        List<Long> total = totals.get(key);
+        if (total == null) {
+            total = Arrays.asList(0L, 0L, 0L);
+            totals.put(key, total);
+        }
+        total.set(0, total.get(0) + cents);
+        total.set(1, total.get(1) + seats);
+        total.set(2, total.get(2) + 1);
+    }
+}
@@ -0,0 +1,93 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks the quantiles of {@link TDigest} against the exact quantiles of the
+ * added values.
+ */
+public class TDigestTest {
+
+    private static final int COUNT = 100000;
+    private static final double[] QUANTILES = { 0.01, 0.25, 0.5, 0.75, 0.95,
+            0.99 };
+
+    @Test
+    public void emptyDigestHasNoQuantiles() {
+        TDigest digest = new TDigest();
+        Assert.assertEquals(0, digest.count());
+        Assert.assertTrue(Double.isNaN(digest.quantile(0.5)));
+    }
+
+    @Test
+    public void uniformValues() {
+        Random random = new Random(1);
+        double[] values = new double[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = random.nextDouble() * 100;
+        }
+        assertQuantiles(values);
+    }
+
+    @Test
+    public void normalValues() {
+        Random random = new Random(2);
+        double[] values = new double[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = 50 + random.nextGaussian() * 10;
+        }
+        assertQuantiles(values);
+    }
+
+    @Test
+    public void mergedDigestMatchesAllValues() {
+        Random random = new Random(3);
+        double[] values = new double[COUNT];
+        TDigest first = new TDigest();
+        TDigest second = new TDigest();
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = random.nextDouble() * 100;
+            (i % 2 == 0 ? first : second).add(values[i]);
+        }
+        first.addAll(second);
+        first.flush();
+        Assert.assertEquals(COUNT, first.count());
+        assertQuantiles(first, values);
+    }
+
+    private static void assertQuantiles(final double[] values) {
+        TDigest digest = new TDigest();
+        for (double value : values) {
+            digest.add(value);
+        }
+        digest.flush();
+        Assert.assertEquals(values.length, digest.count());
+        assertQuantiles(digest, values);
+    }
+
+    /**
+     * Checks the rank of each estimate, which is what a t-digest bounds.
+     */
+    private static void assertQuantiles(final TDigest digest,
+            final double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double estimate = digest.quantile(q);
+            int rank = Arrays.binarySearch(sorted, estimate);
+            if (rank < 0) {
+                rank = -rank - 1;
+            }
+            double actual = (double) rank / sorted.length;
+            // Tighter at the tails where the centroids are small
+            double error = Math.min(0.01, 0.2 * q * (1 - q) + 0.001);
+            Assert.assertEquals("Quantile " + q, q, actual, error);
+        }
+        Assert.assertEquals(sorted[0], digest.quantile(0), 0);
+        Assert.assertEquals(sorted[sorted.length - 1], digest.quantile(1), 0);
+    }
+}
@@ -0,0 +1,29 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+/**
+ * Fills stores for the tests through the append path of the store.
+ */
+final class TestStores {
+
+    private TestStores() {
+    }
+
+    static TransactionStore empty() {
+        return new TransactionStore.Builder()
+                .build(new TransactionStore.Columns(0));
+    }
+
+    /**
+     * @return A store with a sale at each of the given times, which must be
+     *         in order. The other attributes cycle through a few values.
+     */
+    static TransactionStore of(final long... times) {
+        TransactionStore store = empty();
+        for (int i = 0; i < times.length; i++) {
+            store.append(times[i], 100 + i % 7, "Movie " + i % 7, "Country "
+                    + i % 5, "City " + i % 11, "Theater " + i % 3, "Room "
+                    + i % 4, 1 + i % 6, 5 + i % 13 + 0.25);
+        }
+        return store;
+    }
+}
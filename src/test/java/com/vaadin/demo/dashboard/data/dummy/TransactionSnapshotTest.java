@@ -0,0 +1,113 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.demo.dashboard.domain.Transaction;
+
+/**
+ * Writes a {@link TransactionSnapshot} and reads it back, intact and
+ * damaged.
+ */
+public class TransactionSnapshotTest {
+
+    // More than one column segment
+    private static final int ROWS = 70000;
+
+    private File file;
+    private TransactionStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("transactions", ".snapshot");
+        long[] times = new long[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            times[i] = 1000L * i;
+        }
+        store = TestStores.of(times);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        TransactionSnapshot.write(file, new Date(1234), store, ROWS);
+        TransactionSnapshot snapshot = TransactionSnapshot.read(file);
+
+        Assert.assertEquals(new Date(1234), snapshot.getCreated());
+        TransactionStore read = snapshot.getTransactions();
+        Assert.assertEquals(ROWS, read.size());
+        for (int row = 0; row < ROWS; row += 997) {
+            assertSameTransaction(store.toTransaction(row),
+                    read.toTransaction(row));
+        }
+        assertSameTransaction(store.toTransaction(ROWS - 1),
+                read.toTransaction(ROWS - 1));
+
+        // The mapped store takes new sales like a generated one
+        read.append(1000L * ROWS, 100, "Movie 0", "Country 0", "City 0",
+                "Theater 0", "Room 0", 2, 10);
+        Assert.assertEquals(ROWS + 1, read.size());
+    }
+
+    @Test
+    public void laterRowsAreNotWritten() throws IOException {
+        store.append(1000L * ROWS, 100, "Movie 0", "Country 0", "City 0",
+                "Theater 0", "A room added later", 2, 10);
+        TransactionSnapshot.write(file, new Date(), store, ROWS);
+
+        TransactionStore read = TransactionSnapshot.read(file)
+                .getTransactions();
+        Assert.assertEquals(ROWS, read.size());
+        assertSameTransaction(store.toTransaction(ROWS - 1),
+                read.toTransaction(ROWS - 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFileIsRejected() throws IOException {
+        TransactionSnapshot.write(file, new Date(), store, ROWS);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+        TransactionSnapshot.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void fileWithoutHeaderIsRejected() throws IOException {
+        Files.write(file.toPath(), new byte[] { 1, 2, 3 });
+        TransactionSnapshot.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptMetadataIsRejected() throws IOException {
+        TransactionSnapshot.write(file, new Date(), store, ROWS);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        // Past the snapshot and store headers, in the movie titles
+        bytes[48] ^= 1;
+        Files.write(file.toPath(), bytes);
+        TransactionSnapshot.read(file);
+    }
+
+    private static void assertSameTransaction(final Transaction expected,
+            final Transaction actual) {
+        Assert.assertEquals(expected.getTime(), actual.getTime());
+        Assert.assertEquals(expected.getMovieId(), actual.getMovieId());
+        Assert.assertEquals(expected.getTitle(), actual.getTitle());
+        Assert.assertEquals(expected.getCountry(), actual.getCountry());
+        Assert.assertEquals(expected.getCity(), actual.getCity());
+        Assert.assertEquals(expected.getTheater(), actual.getTheater());
+        Assert.assertEquals(expected.getRoom(), actual.getRoom());
+        Assert.assertEquals(expected.getSeats(), actual.getSeats());
+        Assert.assertEquals(expected.getPrice(), actual.getPrice(), 0);
+    }
+}
@@ -0,0 +1,88 @@
+package com.vaadin.demo.dashboard.data.dummy;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.demo.dashboard.domain.Transaction;
+
+/**
+ * Appends to a {@link TransactionStore} and reads the rows back by time.
+ */
+public class TransactionStoreTest {
+
+    @Test
+    public void emptyStore() {
+        TransactionStore store = TestStores.empty();
+        Assert.assertEquals(0, store.size());
+        Assert.assertTrue(store.mostRecent(5).isEmpty());
+        Assert.assertTrue(store.between(new Date(0), new Date(100)).isEmpty());
+        Assert.assertEquals(0, store.lowerBound(10));
+    }
+
+    @Test
+    public void appendedRowsAreReadBack() {
+        TransactionStore store = TestStores.of(10, 20);
+        store.append(30, 200, "New movie", "Sweden", "Malmo", "Theater 2",
+                "Room 9", 4, 12.25);
+
+        Assert.assertEquals(3, store.size());
+        Transaction transaction = store.toTransaction(2);
+        Assert.assertEquals(new Date(30), transaction.getTime());
+        Assert.assertEquals(200, transaction.getMovieId());
+        Assert.assertEquals("New movie", transaction.getTitle());
+        Assert.assertEquals("Sweden", transaction.getCountry());
+        Assert.assertEquals("Malmo", transaction.getCity());
+        Assert.assertEquals("Theater 2", transaction.getTheater());
+        Assert.assertEquals("Room 9", transaction.getRoom());
+        Assert.assertEquals(4, transaction.getSeats());
+        Assert.assertEquals(12.25, transaction.getPrice(), 0);
+        Assert.assertEquals(2, transaction.getId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void appendRejectsOlderRows() {
+        TransactionStore store = TestStores.of(10, 20);
+        store.append(15, 100, "Movie 0", "Finland", "Turku", "Theater 1",
+                "Room 1", 1, 10);
+    }
+
+    @Test
+    public void stagedRowsAreHiddenUntilPublished() {
+        TransactionStore store = TestStores.of(10);
+        store.stage(20, 100, "Movie 0", "Finland", "Turku", "Theater 1",
+                "Room 1", 1, 10);
+        Assert.assertEquals(1, store.size());
+        Assert.assertEquals(1, store.mostRecent(5).size());
+        store.publish();
+        Assert.assertEquals(2, store.size());
+        Assert.assertEquals(20, store.mostRecent(1).get(0).getTime()
+                .getTime());
+    }
+
+    @Test
+    public void queriesFollowTimeOrder() {
+        TransactionStore store = TestStores.of(10, 20, 20, 30, 40);
+
+        List<Transaction> between = store.between(new Date(20), new Date(30));
+        Assert.assertEquals(3, between.size());
+        for (int i = 0; i < between.size(); i++) {
+            Assert.assertEquals(store.time(1 + i), between.get(i).getTime()
+                    .getTime());
+        }
+        Assert.assertTrue(store.between(new Date(41), new Date(50)).isEmpty());
+
+        List<Transaction> recent = store.mostRecent(2);
+        Assert.assertEquals(2, recent.size());
+        Assert.assertEquals(40, recent.get(0).getTime().getTime());
+        Assert.assertEquals(30, recent.get(1).getTime().getTime());
+        Assert.assertEquals(5, store.mostRecent(10).size());
+
+        Assert.assertEquals(0, store.lowerBound(5));
+        Assert.assertEquals(1, store.lowerBound(20));
+        Assert.assertEquals(3, store.lowerBound(21));
+        Assert.assertEquals(5, store.lowerBound(41));
+    }
+}
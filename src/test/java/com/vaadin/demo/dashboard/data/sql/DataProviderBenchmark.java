@@ -0,0 +1,294 @@
+package com.vaadin.demo.dashboard.data.sql;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import com.google.common.base.Supplier;
+import com.vaadin.demo.dashboard.data.DataProvider;
+import com.vaadin.demo.dashboard.data.RevenueDimension;
+import com.vaadin.demo.dashboard.data.SalesMetric;
+import com.vaadin.demo.dashboard.data.TransactionField;
+import com.vaadin.demo.dashboard.data.TransactionIngestion;
+import com.vaadin.demo.dashboard.data.TransactionQuery;
+import com.vaadin.demo.dashboard.data.dummy.DummyDataProvider;
+import com.vaadin.demo.dashboard.data.dummy.GeneratedData;
+import com.vaadin.demo.dashboard.domain.Transaction;
+import com.vaadin.demo.dashboard.domain.User;
+
+/**
+ * Compares the latency of every {@link DataProvider} method between the
+ * in-memory {@link DummyDataProvider} and {@link SqlDataProvider}, both
+ * serving data generated the same way. Not run by the build; run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.vaadin.demo.dashboard.data.sql.DataProviderBenchmark</code>
+ * from the project directory.
+ * <p>
+ * Arguments, all optional: the directory of the movie lists (defaults to
+ * src/main/webapp), the JDBC URL of the database (defaults to a file database
+ * in a temporary directory) and the number of measured calls per method.
+ */
+public class DataProviderBenchmark {
+
+    private static final int WARM_UP_MILLIS = 2000;
+
+    private final List<Operation> operations = new ArrayList<Operation>();
+    private long sink;
+
+    private abstract static class Operation {
+        private final String name;
+
+        Operation(final String name) {
+            this.name = name;
+        }
+
+        abstract Object run(DataProvider provider);
+    }
+
+    public static void main(final String[] args) throws Exception {
+        File baseDirectory = new File(args.length > 0 ? args[0]
+                : "src/main/webapp");
+        String url = args.length > 1 ? args[1] : "jdbc:h2:"
+                + new File(Files.createTempDirectory("dashboard").toFile(),
+                        "benchmark").getAbsolutePath();
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        long start = System.nanoTime();
+        final DummyDataProvider memory = new DummyDataProvider(baseDirectory);
+        System.out.printf("In-memory data loaded in %d ms%n",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        start = System.nanoTime();
+        JdbcConnectionPool pool = JdbcConnectionPool.create(url, "sa", "");
+        final File movieDirectory = baseDirectory;
+        SqlDataProvider.initialize(pool, new Supplier<GeneratedData>() {
+            @Override
+            public GeneratedData get() {
+                return GeneratedData.generate(movieDirectory);
+            }
+        });
+        TransactionIngestion ingestion = SqlDataProvider.createIngestion(pool);
+        ingestion.start();
+        SqlDataProvider sql = new SqlDataProvider(pool, ingestion);
+        System.out.printf("Database %s ready in %d ms%n", url,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        DataProviderBenchmark benchmark = new DataProviderBenchmark(memory);
+        System.out.printf(Locale.US, "%n%-32s %14s %14s %8s%n", "Method",
+                "in-memory us", "sql us", "ratio");
+        for (Operation operation : benchmark.operations) {
+            double memoryMicros = benchmark.measure(operation, memory,
+                    iterations);
+            double sqlMicros = benchmark.measure(operation, sql, iterations);
+            System.out.printf(Locale.US, "%-32s %14.1f %14.1f %7.1fx%n",
+                    operation.name, memoryMicros, sqlMicros, sqlMicros
+                            / memoryMicros);
+        }
+        pool.dispose();
+        System.exit(0);
+    }
+
+    private DataProviderBenchmark(final DataProvider data) {
+        final long movieId = data.getMovies().iterator().next().getId();
+        final User user = data.authenticate("admin", "admin");
+        Calendar calendar = Calendar.getInstance();
+        final Date now = calendar.getTime();
+        calendar.add(Calendar.DAY_OF_MONTH, -7);
+        final Date weekAgo = calendar.getTime();
+        calendar.add(Calendar.MONTH, -3);
+        final Date quarterAgo = calendar.getTime();
+        final Transaction sample = data.getRecentTransactions(1).iterator()
+                .next();
+
+        operations.add(new Operation("getRecentTransactions(5)") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getRecentTransactions(5);
+            }
+        });
+        operations.add(new Operation("getDailyRevenuesByMovie") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getDailyRevenuesByMovie(movieId);
+            }
+        });
+        operations.add(new Operation("getTotalMovieRevenues") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getTotalMovieRevenues();
+            }
+        });
+        operations.add(new Operation("authenticate") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.authenticate("admin", "admin");
+            }
+        });
+        operations.add(new Operation("getNotifications") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getNotifications(user);
+            }
+        });
+        operations.add(new Operation("getTotalSum") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getTotalSum();
+            }
+        });
+        operations.add(new Operation("getMovies") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getMovies();
+            }
+        });
+        operations.add(new Operation("getMovie") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getMovie(movieId);
+            }
+        });
+        operations.add(new Operation("getTransactionsBetween(week)") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getTransactionsBetween(weekAgo, now);
+            }
+        });
+        operations.add(new Operation("getTransactions(first page)") {
+            @Override
+            Object run(final DataProvider provider) {
+                TransactionQuery query = new TransactionQuery();
+                query.setLimit(50);
+                query.addSortOrder(TransactionField.TIME, false);
+                return provider.getTransactions(query);
+            }
+        });
+        operations.add(new Operation("getTransactions(filter, sort)") {
+            @Override
+            Object run(final DataProvider provider) {
+                TransactionQuery query = new TransactionQuery();
+                query.setLimit(50);
+                query.setOffset(100);
+                query.setFilterText("an");
+                query.setFilterFields(EnumSet.of(TransactionField.COUNTRY,
+                        TransactionField.CITY, TransactionField.TITLE));
+                query.addSortOrder(TransactionField.PRICE, false);
+                return provider.getTransactions(query);
+            }
+        });
+        operations.add(new Operation("getRevenueBy(movie, quarter)") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getRevenueBy(
+                        EnumSet.of(RevenueDimension.MOVIE), quarterAgo, now);
+            }
+        });
+        operations.add(new Operation("getRevenueBy(day, country)") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getRevenueBy(EnumSet.of(RevenueDimension.DAY,
+                        RevenueDimension.COUNTRY), weekAgo, now);
+            }
+        });
+        operations.add(new Operation("getDistinctCountries") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getDistinctCountries(movieId);
+            }
+        });
+        operations.add(new Operation("getDistinctCities") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getDistinctCities(movieId);
+            }
+        });
+        operations.add(new Operation("getPricePercentile(0.95)") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getPricePercentile(0.95);
+            }
+        });
+        operations.add(new Operation("getSeatsPercentile(0.5)") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getSeatsPercentile(0.5);
+            }
+        });
+        operations.add(new Operation("getMetricHistory(SALES_PER_HOUR, 24)") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.getMetricHistory(SalesMetric.SALES_PER_HOUR,
+                        24);
+            }
+        });
+        operations.add(new Operation("addTransaction") {
+            @Override
+            Object run(final DataProvider provider) {
+                Transaction transaction = newSale(sample);
+                provider.addTransaction(transaction);
+                return transaction;
+            }
+        });
+        operations.add(new Operation("offerTransaction") {
+            @Override
+            Object run(final DataProvider provider) {
+                return provider.offerTransaction(newSale(sample));
+            }
+        });
+    }
+
+    private static Transaction newSale(final Transaction sample) {
+        Transaction transaction = new Transaction();
+        transaction.setTime(new Date());
+        transaction.setMovieId(sample.getMovieId());
+        transaction.setTitle(sample.getTitle());
+        transaction.setCountry(sample.getCountry());
+        transaction.setCity(sample.getCity());
+        transaction.setTheater(sample.getTheater());
+        transaction.setRoom(sample.getRoom());
+        transaction.setSeats(sample.getSeats());
+        transaction.setPrice(sample.getPrice());
+        return transaction;
+    }
+
+    /**
+     * @return The mean latency of the operation in microseconds, after
+     *         running it for a while to let the JIT compile it.
+     */
+    private double measure(final Operation operation,
+            final DataProvider provider, final int iterations) {
+        long warmUpEnd = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(WARM_UP_MILLIS);
+        while (System.nanoTime() < warmUpEnd) {
+            consume(operation.run(provider));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            consume(operation.run(provider));
+        }
+        return (System.nanoTime() - start) / 1000.0 / iterations;
+    }
+
+    /*
+     * Touches the result so that lazily materialized collections are
+     * materialized and nothing is optimized away.
+     */
+    private void consume(final Object result) {
+        if (result instanceof Collection) {
+            for (Object element : (Collection<?>) result) {
+                sink += element.hashCode();
+            }
+        } else if (result != null) {
+            sink += result.hashCode();
+        }
+    }
+}